@@ -1,8 +1,16 @@
 #!/bin/bash
 
-USAGE="Usage: $0 [<release> ...]
+USAGE="Usage: $0 [--rules-file <file>] [<release> ...]
+
+With --rules-file, the version-specific rules are read from the specified file (see TierRouting) instead of being generated.
 "
 
+RULES_FILE=
+if [[ "${1:-}" = "--rules-file" ]] ; then
+  RULES_FILE="$2"
+  shift 2
+fi
+
 [[ $# -gt 0 ]] || { echo "${USAGE}Expected at least one argument." >&2 ; exit 1 ; }
 
 set -o pipefail
@@ -20,7 +28,16 @@ RewriteCond %{QUERY_STRING} ^.*uctest$
 RewriteRule ^(|.+/)(update\-center.*\.(json|html)+) /uctest.json [NC,L]
 EOF
 
-echo "# Version-specific rulesets generated by generate.sh"
+# Writes version-specific rules unless they are read from the rules file
+function emit {
+  [[ -n "$RULES_FILE" ]] || cat
+}
+
+if [[ -n "$RULES_FILE" ]] ; then
+  cat "$RULES_FILE"
+else
+  echo "# Version-specific rulesets generated by generate.sh"
+fi
 n=$#
 versions=( "$@" )
 newestStable=
@@ -44,7 +61,7 @@ for (( i = n-1 ; i >= 0 ; i-- )) ; do
       newestStable="$version"
     fi
 
-    cat <<EOF
+    emit <<EOF
 
 # If major > ${major} or major = ${major} and minor > ${minor} or major = ${major} and minor = ${minor} and patch >= ${patch}, use this LTS update site
 RewriteCond %{QUERY_STRING} ^.*version=(\d)\.(\d+)\.(\d+)(|[-].*)$ [NC]
@@ -66,7 +83,7 @@ EOF
     # Split our version up into an array for rewriting
     # 1.651 becomes (1 651)
     oldestWeekly="$version"
-    cat <<EOF
+    emit <<EOF
 
 # If major > ${major} or major = ${major} and minor >= ${minor}, use this weekly update site
 RewriteCond %{QUERY_STRING} ^.*version=(\d)\.(\d+)(|[-].*)$ [NC]
@@ -81,7 +98,7 @@ EOF
   fi
 done
 
-cat <<EOF
+emit <<EOF
 
 
 # First LTS update site (stable-$oldestStable) gets all older LTS releases
@@ -26,8 +26,10 @@ echo "Bash: $BASH_VERSION" >&2
 UNAME="$( uname )"
 if [[ $UNAME == Linux ]] ; then
   SORT="sort"
+  MV="mv"
 elif [[ $UNAME == Darwin ]] ; then
   SORT="gsort"
+  MV="gmv"
 else
   echo "Unknown platform: $UNAME" >&2
   exit 1
@@ -37,7 +39,7 @@ function test_which {
   command -v "$1" >/dev/null || { echo "Not on PATH: $1" >&2 ; exit 1 ; }
 }
 
-TOOLS=( curl wget "$SORT" jq )
+TOOLS=( curl wget "$SORT" "$MV" jq )
 
 for tool in "${TOOLS[@]}" ; do
   test_which "$tool"
@@ -72,22 +74,56 @@ function execute {
   # java -Dfile.encoding=UTF-8 -jar target/update-center2-*-bin/update-center2-*.jar "$@"
 }
 
-execute --dynamic-tier-list-file tmp/tiers.json
+execute --dynamic-tier-list-file tmp/tiers.json --tier-routing-directory tmp/tier-routing
 readarray -t WEEKLY_RELEASES < <( jq --raw-output '.weeklyCores[]' tmp/tiers.json ) || { echo "Failed to determine weekly tier list" >&2 ; exit 1 ; }
 readarray -t STABLE_RELEASES < <( jq --raw-output '.stableCores[]' tmp/tiers.json ) || { echo "Failed to determine stable tier list" >&2 ; exit 1 ; }
 
 # prepare the www workspace for execution
+if [[ -n "${VERSIONED_WWW_DIR:-}" ]] ; then
+  # Generate into a new directory next to the live one, which is a symlink to the current generation.
+  # Unchanged files are hard linked from the current generation, which is never modified, so it can be published while this runs.
+  LIVE_WWW_DIR="$WWW_ROOT_DIR"
+  if [[ -d "$LIVE_WWW_DIR" && ! -L "$LIVE_WWW_DIR" ]] ; then
+    # Turn a directory generated without VERSIONED_WWW_DIR into the first generation
+    mv "$LIVE_WWW_DIR" "$LIVE_WWW_DIR.0"
+    ln -s "$( basename "$LIVE_WWW_DIR" ).0" "$LIVE_WWW_DIR"
+  fi
+  PREVIOUS_WWW_DIR=
+  if [[ -d "$LIVE_WWW_DIR" ]] ; then
+    PREVIOUS_WWW_DIR="$( readlink -f "$LIVE_WWW_DIR" 2>/dev/null || greadlink -f "$LIVE_WWW_DIR" )"
+  fi
+  WWW_ROOT_DIR="$LIVE_WWW_DIR.$( date +%s )"
+  if [[ -n "$PREVIOUS_WWW_DIR" ]] ; then
+    EXTRA_ARGS="$EXTRA_ARGS --output-root $WWW_ROOT_DIR --previous-output-root $PREVIOUS_WWW_DIR"
+  fi
+fi
+# Without VERSIONED_WWW_DIR, the www root is generated from scratch, so all files are new.
+# Keeping unchanged files (and their modification times) only applies to versioned generations.
 rm -rf "$WWW_ROOT_DIR"
 mkdir -p "$WWW_ROOT_DIR"
 
 # Generate htaccess file
-"$( dirname "$0" )"/generate-htaccess.sh "${WEEKLY_RELEASES[@]}" "${STABLE_RELEASES[@]}" > "$WWW_ROOT_DIR/.htaccess"
+# Publish the tier routing table for web servers not using .htaccess
+cp tmp/tier-routing/tiers-routing.json tmp/tier-routing/tiers-rewrite-map.txt "$WWW_ROOT_DIR"/
+if [[ -n "${TIER_REWRITE_MAP:-}" ]] ; then
+  # The web server declares the 'tiers' RewriteMap from tiers-rewrite-map.txt, so use a few lookup rules instead of one rule chain per tier
+  "$( dirname "$0" )"/generate-htaccess.sh --rules-file tmp/tier-routing/tiers.htaccess "${WEEKLY_RELEASES[@]}" "${STABLE_RELEASES[@]}" > "$WWW_ROOT_DIR/.htaccess"
+else
+  "$( dirname "$0" )"/generate-htaccess.sh "${WEEKLY_RELEASES[@]}" "${STABLE_RELEASES[@]}" > "$WWW_ROOT_DIR/.htaccess"
+fi
 
 # Reset arguments file
 echo "# one update site per line" > "$MAIN_DIR"/tmp/args.lst
 
 function generate {
-  echo "--key $SECRET/update-center.key --certificate $SECRET/update-center.cert --root-certificate $( dirname "$0" )/../resources/certificates/jenkins-update-center-root-ca-2.crt --index-template-url https://www.jenkins.io/templates/downloads/ $EXTRA_ARGS $*" >> "$MAIN_DIR"/tmp/args.lst
+  echo "--key $SECRET/update-center.key --certificate $SECRET/update-center.cert --root-certificate $( dirname "$0" )/../resources/certificates/jenkins-update-center-root-ca-2.crt --index-template-url https://www.jenkins.io/templates/downloads/ --pom-metadata-cache $MAIN_DIR/tmp/pom-metadata.txt --description-cache $MAIN_DIR/tmp/descriptions.txt --link-identical-files $EXTRA_ARGS $*" >> "$MAIN_DIR"/tmp/args.lst
+}
+
+# Keeps previous versions of update-center.json per update site if UPDATE_CENTER_HISTORY_DIR is set, to generate deltas from them
+function delta-args {
+  if [[ -n "${UPDATE_CENTER_HISTORY_DIR:-}" ]] ; then
+    echo "--update-center-history-directory $UPDATE_CENTER_HISTORY_DIR/$1"
+  fi
 }
 
 function sanity-check {
@@ -109,25 +145,26 @@ function sanity-check {
 # This supports updating Jenkins (core) once a year while getting offered compatible plugin updates.
 for version in "${WEEKLY_RELEASES[@]}" ; do
   # For mainline, advertising the latest core
-  generate --limit-plugin-core-dependency "$version" --write-latest-core --write-timestamp --www-dir "$WWW_ROOT_DIR/dynamic-$version"
+  generate --limit-plugin-core-dependency "$version" --write-latest-core --write-timestamp --www-dir "$WWW_ROOT_DIR/dynamic-$version" $( delta-args "dynamic-$version" )
 done
 
 for version in "${STABLE_RELEASES[@]}" ; do
   # For LTS, advertising the latest LTS core
-  generate --limit-plugin-core-dependency "$version" --write-latest-core --write-timestamp --www-dir "$WWW_ROOT_DIR/dynamic-stable-$version" --only-stable-core
+  generate --limit-plugin-core-dependency "$version" --write-latest-core --write-timestamp --www-dir "$WWW_ROOT_DIR/dynamic-stable-$version" --only-stable-core $( delta-args "dynamic-stable-$version" )
 done
 
 # Experimental update center without version caps, including experimental releases.
 # This is not a part of the version-based redirection rules, admins need to manually configure it.
 # Generate this first, including --downloads-directory, as this includes all releases, experimental and otherwise.
-generate --www-dir "$WWW_ROOT_DIR/experimental" --generate-recent-releases --with-experimental --downloads-directory "$DOWNLOAD_ROOT_DIR" --latest-links-directory "$WWW_ROOT_DIR/experimental/latest"
+generate --www-dir "$WWW_ROOT_DIR/experimental" $( delta-args experimental ) --generate-recent-releases --with-experimental --downloads-directory "$DOWNLOAD_ROOT_DIR" --staging-journal "$MAIN_DIR/tmp/staging-journal.txt" --write-checksum-files --latest-links-directory "$WWW_ROOT_DIR/experimental/latest"
 
 # Current update site without version caps, excluding experimental releases.
 # This generates -download after the experimental update site above to change the 'latest' symlinks to the latest released version.
 # This also generates --download-links-directory to only visibly show real releases on index.html pages.
 generate --generate-release-history --generate-recent-releases --generate-plugin-versions --generate-plugin-documentation-urls \
     --write-latest-core --write-timestamp --write-plugin-count \
-    --www-dir "$WWW_ROOT_DIR/current" --download-links-directory "$WWW_ROOT_DIR/download" --downloads-directory "$DOWNLOAD_ROOT_DIR" --latest-links-directory "$WWW_ROOT_DIR/current/latest"
+    --release-history-cache "$MAIN_DIR/tmp/release-history-segments.txt" \
+    --www-dir "$WWW_ROOT_DIR/current" $( delta-args current ) --download-links-directory "$WWW_ROOT_DIR/download" --downloads-directory "$DOWNLOAD_ROOT_DIR" --staging-journal "$MAIN_DIR/tmp/staging-journal.txt" --latest-links-directory "$WWW_ROOT_DIR/current/latest"
 
 # Actually run the update center build.
 execute --resources-dir "$MAIN_DIR"/resources --arguments-file "$MAIN_DIR"/tmp/args.lst
@@ -148,6 +185,14 @@ done
 
 sanity-check "$WWW_ROOT_DIR/experimental"
 sanity-check "$WWW_ROOT_DIR/current"
+
+if [[ -n "${UPDATE_CENTER_HISTORY_DIR:-}" ]] ; then
+  # Tiers are dropped over time, remove their update site history
+  for dir in "$UPDATE_CENTER_HISTORY_DIR"/*/ ; do
+    [[ -d "$dir" ]] || continue
+    [[ -d "$WWW_ROOT_DIR/$( basename "$dir" )" ]] || rm -rf "$dir"
+  done
+fi
 ln -sf ../updates "$WWW_ROOT_DIR/experimental/updates"
 ln -sf ../updates "$WWW_ROOT_DIR/current/updates"
 
@@ -164,3 +209,21 @@ popd
 echo '{}' > "$WWW_ROOT_DIR/uctest.json"
 wget -q --convert-links -O "$WWW_ROOT_DIR/index.html" --convert-links https://www.jenkins.io/templates/updates/index.html
 cp -av "tmp/tiers.json" "$WWW_ROOT_DIR/tiers.json"
+
+if [[ -n "${VERSIONED_WWW_DIR:-}" ]] ; then
+  # The new generation passed the sanity checks above, so atomically switch the live symlink to it
+  # Remove a link left over from an interrupted run, otherwise the new link would be created inside its target
+  rm -rf "$LIVE_WWW_DIR.tmp"
+  ln -s "$( basename "$WWW_ROOT_DIR" )" "$LIVE_WWW_DIR.tmp"
+  "$MV" -T "$LIVE_WWW_DIR.tmp" "$LIVE_WWW_DIR"
+  echo "Published generation $WWW_ROOT_DIR" >&2
+
+  # Keep the previous generation, as it may still be in the process of being published
+  for generation in "$LIVE_WWW_DIR".* ; do
+    # Only consider generation directories created by this script, i.e. named after the live directory with a numeric suffix
+    [[ "${generation#"$LIVE_WWW_DIR".}" =~ ^[0-9]+$ && -d "$generation" && ! -L "$generation" ]] || continue
+    if [[ "$generation" != "$WWW_ROOT_DIR" && "$( basename "$generation" )" != "$( basename "${PREVIOUS_WWW_DIR:-}" )" ]] ; then
+      rm -rf "$generation"
+    fi
+  done
+fi
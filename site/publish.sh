@@ -110,6 +110,7 @@ then
             : "${RSYNC_HOST?}" "${RSYNC_USER?}" "${RSYNC_GROUP?}" "${RSYNC_REMOTE_DIR?}" "${RSYNC_IDENTITY_NAME?}"
 
             time rsync --chown="${RSYNC_USER}":"${RSYNC_GROUP}" --recursive --links --perms --times --devices --specials \
+                --hard-links `# identical files of different update sites are hard links, only transfer them once` \
                 --rsh="ssh -i ${UPDATE_CENTER_FILESHARES_ENV_FILES}/${RSYNC_IDENTITY_NAME}" `# rsync identity file is stored with .env files` \
                 --checksum --verbose --compress \
                 --exclude=/updates `# populated by https://github.com/jenkins-infra/crawler` \
@@ -123,6 +124,7 @@ then
             : "${RSYNC_REMOTE_DIR?}"
 
             time rsync --recursive --links --times --devices --specials \
+                --hard-links `# identical files of different update sites are hard links, only copy them once` \
                 --checksum --verbose \
                 --exclude=/updates `# populated by https://github.com/jenkins-infra/crawler` \
                 --delete `# delete old sites` \
@@ -155,7 +157,7 @@ then
     export -f parallelfunction
 
     ############# Prepare the different UC source directories to be copied to different destinations
-    chmod -R a+r "${www2_dir}" # Required for updates.jenkins.io rsync copy using distinct user than httpd's
+    chmod -R a+r "${www2_dir}"/ # Required for updates.jenkins.io rsync copy using distinct user than httpd's
     date +%s > "${www2_dir}"/TIME # Used by mirrorbits and healthchecks
 
     # Note: these PATH must map to the FILESHARE_SYNC_SOURCE in the ZIP env files (!)
@@ -185,7 +187,7 @@ then
 
     # Prepare "httpd_dir" directory, same content as $www2_dir
     ## TODO: use only www2_dir when the old PKG machine will be decommissioned
-    rsync -av "${www2_dir}"/ "${httpd_dir}"/
+    rsync -avH "${www2_dir}"/ "${httpd_dir}"/
     mirrorbits_hostname='mirrors.updates.jenkins.io'
     {
         # Append the httpd -> mirrorbits redirection as fallback (end of htaccess file)
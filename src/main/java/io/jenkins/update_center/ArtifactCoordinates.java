@@ -1,8 +1,10 @@
 package io.jenkins.update_center;
 
 import java.util.Objects;
+import java.util.regex.Pattern;
 
 public class ArtifactCoordinates {
+    private static final Pattern VALID_VERSION = Pattern.compile("[0-9]+([-.].*)?");
 
     public final String groupId;
     public final String artifactId;
@@ -45,6 +47,6 @@ public class ArtifactCoordinates {
      *        is a number.
      */
     public boolean isVersionValid() {
-        return version.matches("[0-9]+([-.].*)?");
+        return VALID_VERSION.matcher(version).matches();
     }
 }
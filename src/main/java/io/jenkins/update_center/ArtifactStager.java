@@ -0,0 +1,217 @@
+package io.jenkins.update_center;
+
+import io.jenkins.update_center.util.Environment;
+import io.jenkins.update_center.util.PersistentCache;
+
+import javax.annotation.CheckForNull;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Stages artifacts into a downloads directory as hard links to the resolved artifact files.
+ *
+ * <p>Links are created in-process on a pool of {@code STAGING_THREADS} threads. Each link is first created with a
+ * temporary name next to the destination and then moved into place, so an existing destination is replaced
+ * atomically.</p>
+ *
+ * <p>If a staging journal is used, the destination and source identity (checksum, size and timestamp from the
+ * repository) of every staged artifact are recorded in it. Artifacts whose journal entry is unchanged are skipped
+ * without resolving them or looking at the file system. Every {@code STAGING_AUDIT_INTERVAL_DAYS} days, the journal is
+ * ignored for one execution and the files of all artifacts are checked again. Entries of artifacts that are no longer
+ * staged, or that failed to be staged, are dropped from the journal, and an audit with failures is repeated.</p>
+ */
+public class ArtifactStager implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(ArtifactStager.class.getName());
+
+    private static final int STAGING_THREADS = Environment.getInteger("STAGING_THREADS", 8);
+
+    private static final Duration AUDIT_INTERVAL = Duration.ofDays(Environment.getInteger("STAGING_AUDIT_INTERVAL_DAYS", 7));
+
+    /**
+     * Journal key recording when the files of all artifacts were last checked.
+     */
+    private static final String LAST_AUDIT_KEY = "#last-audit";
+
+    private static final PersistentCache JOURNAL = new PersistentCache("staging journal");
+
+    private final ThreadPoolExecutor executor;
+
+    private final boolean useJournal;
+    private final boolean audit;
+
+    private final AtomicInteger linked = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final AtomicInteger journaled = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicReference<IOException> firstFailure = new AtomicReference<>();
+
+    public ArtifactStager() {
+        this(null);
+    }
+
+    /**
+     * @param journal the staging journal file, or {@code null} to check the files of all artifacts
+     */
+    public ArtifactStager(@CheckForNull File journal) {
+        this.useJournal = journal != null;
+        if (journal != null) {
+            JOURNAL.load(journal);
+            this.audit = System.currentTimeMillis() - getLastAudit() > AUDIT_INTERVAL.toMillis();
+            if (audit) {
+                LOGGER.log(Level.INFO, "Checking the files of all staged artifacts");
+            }
+        } else {
+            this.audit = false;
+        }
+        // Bounded queue so that callers wait (or run tasks themselves) instead of queueing every release in memory
+        this.executor = new ThreadPoolExecutor(STAGING_THREADS, STAGING_THREADS, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(STAGING_THREADS * 64), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Schedules staging of an artifact into the specified location, unless it is already up to date.
+     *
+     * @param artifact the artifact to stage
+     * @param dst the staging location
+     */
+    public void stage(MavenArtifact artifact, File dst) {
+        executor.execute(() -> {
+            final String key = dst.getAbsolutePath();
+            try {
+                final String identity = useJournal ? getIdentity(artifact) : null;
+                if (identity != null && !audit && identity.equals(JOURNAL.get(key))) {
+                    journaled.incrementAndGet();
+                    return;
+                }
+                if (stageNow(artifact, dst)) {
+                    linked.incrementAndGet();
+                } else {
+                    skipped.incrementAndGet();
+                }
+                if (identity != null) {
+                    JOURNAL.put(key, identity);
+                }
+            } catch (IOException | RuntimeException e) {
+                failed.incrementAndGet();
+                LOGGER.log(Level.WARNING, "Failed to stage " + artifact + " to " + dst, e);
+                firstFailure.compareAndSet(null, e instanceof IOException ? (IOException) e : new IOException(e));
+                // Retry in the next execution even if the journal entry looked up above was unchanged
+                JOURNAL.remove(key);
+            }
+        });
+    }
+
+    private static long getLastAudit() {
+        final String lastAudit = JOURNAL.get(LAST_AUDIT_KEY);
+        try {
+            return lastAudit == null ? 0 : Long.parseLong(lastAudit);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Identifies the source of a staged file without accessing it, or returns {@code null} if that is not possible.
+     */
+    @CheckForNull
+    private static String getIdentity(MavenArtifact artifact) throws IOException {
+        final MavenRepository.ArtifactMetadata metadata = artifact.getMetadata();
+        if (metadata == null || metadata.sha256 == null) {
+            return null;
+        }
+        return artifact.artifact + " " + metadata.sha256 + " " + metadata.size + " " + metadata.timestamp;
+    }
+
+    private static boolean stageNow(MavenArtifact artifact, File dst) throws IOException {
+        final File src = artifact.resolve();
+        if (dst.exists() && dst.lastModified() == src.lastModified() && dst.length() == src.length()) {
+            LOGGER.log(Level.FINEST, () -> "Destination file " + dst + " for artifact " + artifact + " already exists");
+            return false;
+        }
+
+        // TODO: directory and the war file should have the release timestamp
+        final File parentFile = dst.getParentFile();
+        if (!parentFile.mkdirs() && !parentFile.isDirectory()) {
+            throw new IOException("Failed to create " + parentFile);
+        }
+        link(src.toPath(), dst.toPath());
+        LOGGER.log(Level.INFO, "Created new download file " + dst + " from " + src);
+        return true;
+    }
+
+    /**
+     * Creates or atomically replaces {@code dst} as a hard link to {@code src}.
+     */
+    static void link(Path src, Path dst) throws IOException {
+        final Path tmp = dst.resolveSibling("." + dst.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            Files.createLink(tmp, src);
+            Files.move(tmp, dst, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            // Renaming a link onto another link to the same file does nothing, so the temporary link may remain
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Waits for all scheduled artifacts to be staged, and logs how many were linked, skipped or failed.
+     *
+     * @throws IOException if staging any artifact failed
+     */
+    public void finish() throws IOException {
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                LOGGER.log(Level.INFO, () -> "Waiting for staging to complete, " + executor.getQueue().size() + " artifacts queued");
+            }
+        } catch (InterruptedException e) {
+            throw new IOException("Interrupted while staging artifacts", e);
+        }
+        LOGGER.log(Level.INFO, () -> "Staged artifacts: " + linked.get() + " linked, " + skipped.get() + " already up to date, "
+                + journaled.get() + " unchanged according to the journal, " + failed.get() + " failed");
+        if (useJournal) {
+            // Check all files again in the next execution unless this audit was complete
+            if (audit && failed.get() == 0) {
+                JOURNAL.put(LAST_AUDIT_KEY, Long.toString(System.currentTimeMillis()));
+            }
+            JOURNAL.save();
+        }
+        final IOException failure = firstFailure.get();
+        if (failure != null) {
+            throw new IOException("Failed to stage " + failed.get() + " artifacts", failure);
+        }
+    }
+
+    public int getLinked() {
+        return linked.get();
+    }
+
+    public int getSkipped() {
+        return skipped.get();
+    }
+
+    public int getJournaled() {
+        return journaled.get();
+    }
+
+    public int getFailed() {
+        return failed.get();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -23,6 +23,8 @@ import org.apache.commons.io.output.TeeOutputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.tools.ant.filters.StringInputStream;
 
+import javax.annotation.CheckForNull;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -30,9 +32,13 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -41,6 +47,8 @@ import java.util.jar.Manifest;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 public class ArtifactoryRepositoryImpl extends BaseMavenRepository {
     private static final Logger LOGGER = Logger.getLogger(ArtifactoryRepositoryImpl.class.getName());
@@ -50,7 +58,8 @@ public class ArtifactoryRepositoryImpl extends BaseMavenRepository {
     private static final String ARTIFACTORY_REPOSITORY = Environment.getString("ARTIFACTORY_REPOSITORY", "releases");
 
     private static final String ARTIFACTORY_AQL_URL = ARTIFACTORY_API_URL + "search/aql";
-    private static final String ARTIFACTORY_MANIFEST_URL = ARTIFACTORY_URL + "%s/%s!/META-INF/MANIFEST.MF";
+    private static final String MANIFEST_PATH = "META-INF/MANIFEST.MF";
+    private static final String ARTIFACTORY_MANIFEST_URL = ARTIFACTORY_URL + "%s/%s!/" + MANIFEST_PATH;
     private static final String ARTIFACTORY_ZIP_ENTRY_URL = ARTIFACTORY_URL + "%s/%s!%s";
     private static final String ARTIFACTORY_FILE_URL = ARTIFACTORY_URL + "%s/%s";
 
@@ -59,7 +68,7 @@ public class ArtifactoryRepositoryImpl extends BaseMavenRepository {
     private final String username;
     private final String password;
 
-    private File cacheDirectory = new File(Environment.getString("ARTIFACTORY_CACHEDIR", "caches/artifactory"));
+    private final File cacheDirectory;
 
     private boolean initialized = false;
 
@@ -69,8 +78,13 @@ public class ArtifactoryRepositoryImpl extends BaseMavenRepository {
     private Set<ArtifactCoordinates> poms;
 
     public ArtifactoryRepositoryImpl(String username, String password) {
+        this(username, password, new File(Environment.getString("ARTIFACTORY_CACHEDIR", "caches/artifactory")));
+    }
+
+    ArtifactoryRepositoryImpl(String username, String password, File cacheDirectory) {
         this.username = username;
         this.password = password;
+        this.cacheDirectory = cacheDirectory;
     }
 
     @Override
@@ -79,27 +93,29 @@ public class ArtifactoryRepositoryImpl extends BaseMavenRepository {
         return wars;
     }
 
-    private static boolean containsIllegalChars(String test) {
-        return !test.chars().allMatch(c ->
-                c >= '0' && c <= '9'
-                || c >= 'A' && c <= 'Z'
-                || c >= 'a' && c <= 'z'
-                || c == '+' || c == '-' || c == '.' || c == '/' || c == '_'
-        );
+    static boolean containsIllegalChars(String test) {
+        // Called for every file in the repository, so avoid creating a stream for each
+        for (int i = 0; i < test.length(); i++) {
+            final char c = test.charAt(i);
+            if (!(c >= '0' && c <= '9'
+                    || c >= 'A' && c <= 'Z'
+                    || c >= 'a' && c <= 'z'
+                    || c == '+' || c == '-' || c == '.' || c == '/' || c == '_')) {
+                return true;
+            }
+        }
+        return false;
     }
 
-    private static ArtifactCoordinates toGav(JsonFile f) {
-        String fileName = f.name;
-        String path = f.path;
-
+    static ArtifactCoordinates toGav(String path, String fileName) {
         if (containsIllegalChars(fileName) || containsIllegalChars(path)) {
-            LOGGER.log(Level.INFO, "Characters outside allowed set: " + f.path + " / " + f.name);
+            LOGGER.log(Level.INFO, "Characters outside allowed set: " + path + " / " + fileName);
             return null;
         }
 
         int gaToV = path.lastIndexOf('/');
         if (gaToV <= 0) {
-            LOGGER.log(Level.INFO, "Unexpected path/name: " + f.path + " / " + f.name);
+            LOGGER.log(Level.INFO, "Unexpected path/name: " + path + " / " + fileName);
             return null;
         }
         String version = path.substring(gaToV + 1);
@@ -107,7 +123,7 @@ public class ArtifactoryRepositoryImpl extends BaseMavenRepository {
 
         int gToA = ga.lastIndexOf('/');
         if (gToA <= 0) {
-            LOGGER.log(Level.INFO, "Unexpected path/name: " + f.path + " / " + f.name);
+            LOGGER.log(Level.INFO, "Unexpected path/name: " + path + " / " + fileName);
             return null;
         }
         String artifactId = ga.substring(gToA + 1);
@@ -151,7 +167,8 @@ public class ArtifactoryRepositoryImpl extends BaseMavenRepository {
         public List<JsonFile> results;
     }
 
-    private Map<String, String> cache = new HashMap<>();
+    // synchronized rather than concurrent because null values record failed downloads
+    private final Map<String, String> cache = Collections.synchronizedMap(new HashMap<>());
 
     private static final int CACHE_ENTRY_MAX_LENGTH = 1024 * 64;
 
@@ -176,10 +193,10 @@ public class ArtifactoryRepositoryImpl extends BaseMavenRepository {
             throw new IOException(e);
         }
 
-        this.poms = this.files.values().stream().filter(it -> it.name.endsWith(".pom")).map(ArtifactoryRepositoryImpl::toGav).filter(Objects::nonNull).collect(Collectors.toSet());
-        this.plugins = this.files.values().stream().filter(it -> it.name.endsWith(".hpi") || it.name.endsWith(".jpi")).map(ArtifactoryRepositoryImpl::toGav).filter(Objects::nonNull).collect(Collectors.toSet());
+        this.poms = this.files.values().stream().filter(it -> it.name.endsWith(".pom")).map(it -> toGav(it.path, it.name)).filter(Objects::nonNull).collect(Collectors.toSet());
+        this.plugins = this.files.values().stream().filter(it -> it.name.endsWith(".hpi") || it.name.endsWith(".jpi")).map(it -> toGav(it.path, it.name)).filter(Objects::nonNull).collect(Collectors.toSet());
         removeIf(this.plugins, it -> !this.poms.contains(new ArtifactCoordinates(it.groupId, it.artifactId, it.version, "pom")));
-        this.wars = this.files.values().stream().filter(it -> it.name.endsWith(".war")).map(ArtifactoryRepositoryImpl::toGav).collect(Collectors.toSet());
+        this.wars = this.files.values().stream().filter(it -> it.name.endsWith(".war")).map(it -> toGav(it.path, it.name)).collect(Collectors.toSet());
         removeIf(this.wars, it -> !this.poms.contains(new ArtifactCoordinates(it.groupId, it.artifactId, it.version, "pom")));
         LOGGER.log(Level.INFO, "Initialized " + this.getClass().getName());
     }
@@ -230,7 +247,7 @@ public class ArtifactoryRepositoryImpl extends BaseMavenRepository {
         return ret;
     }
 
-    private void ensureInitialized() throws IOException {
+    private synchronized void ensureInitialized() throws IOException {
         if (!initialized) {
             initialize();
             initialized = true;
@@ -245,11 +262,59 @@ public class ArtifactoryRepositoryImpl extends BaseMavenRepository {
 
     @Override
     public Manifest getManifest(MavenArtifact artifact) throws IOException {
+        final File archive = findLocalArchive(artifact.artifact);
+        if (archive != null) {
+            final byte[] manifest = readZipFileEntries(archive, Collections.singletonList(MANIFEST_PATH)).get(MANIFEST_PATH);
+            if (manifest == null) {
+                throw new IOException("No manifest in " + archive);
+            }
+            return new Manifest(new ByteArrayInputStream(manifest));
+        }
         try (InputStream is = getFileContent(String.format(ARTIFACTORY_MANIFEST_URL, ARTIFACTORY_REPOSITORY, getUri(artifact.artifact)))) {
             return new Manifest(is);
         }
     }
 
+    @Override
+    public Map<String, byte[]> getZipFileEntries(MavenArtifact artifact, Collection<String> paths) throws IOException {
+        final File archive = findLocalArchive(artifact.artifact);
+        if (archive != null) {
+            return readZipFileEntries(archive, paths);
+        }
+        // Artifactory only serves a single archive entry per request
+        return super.getZipFileEntries(artifact, paths);
+    }
+
+    /**
+     * Returns the archive file of the specified artifact if it is available without downloading it, i.e. in the local
+     * Maven repository or in the download cache.
+     */
+    @CheckForNull
+    private File findLocalArchive(ArtifactCoordinates coordinates) {
+        final String uri = getUri(coordinates);
+        final File localFile = new File(LOCAL_REPO, uri);
+        if (localFile.isFile()) {
+            return localFile;
+        }
+        final File cacheFile = getCacheFile(String.format(ARTIFACTORY_FILE_URL, ARTIFACTORY_REPOSITORY, uri));
+        return cacheFile.isFile() ? cacheFile : null;
+    }
+
+    private static Map<String, byte[]> readZipFileEntries(File archive, Collection<String> paths) throws IOException {
+        final Map<String, byte[]> entries = new LinkedHashMap<>();
+        try (ZipFile zip = new ZipFile(archive)) {
+            for (String path : paths) {
+                final ZipEntry entry = zip.getEntry(StringUtils.removeStart(path, "/"));
+                if (entry != null) {
+                    try (InputStream is = zip.getInputStream(entry)) {
+                        entries.put(path, IOUtils.toByteArray(is));
+                    }
+                }
+            }
+        }
+        return entries;
+    }
+
     private InputStream getFileContent(String url) throws IOException {
         if (this.cache.containsKey(url)) {
             String entry = this.cache.get(url);
@@ -262,15 +327,19 @@ public class ArtifactoryRepositoryImpl extends BaseMavenRepository {
         return new FileInputStream(cacheFile);
     }
 
-    private File getFile(final String url) throws IOException {
+    private File getCacheFile(final String url) {
         final String path = URI.create(url).getPath();
         final String sha256 = DigestUtils.sha256Hex(path);
         final String sha256prefix = sha256.substring(0, 2); // to limit number of files in top-level directory
-        final File cachePrefixDir = new File(cacheDirectory, sha256prefix);
+        return new File(new File(cacheDirectory, sha256prefix), sha256);
+    }
+
+    private File getFile(final String url) throws IOException {
+        File cacheFile = getCacheFile(url);
+        final File cachePrefixDir = cacheFile.getParentFile();
         if (!cachePrefixDir.exists() && !cachePrefixDir.mkdirs()) {
             LOGGER.log(Level.WARNING, "Failed to create cache prefix directory " + cachePrefixDir);
         }
-        File cacheFile = new File(cachePrefixDir, sha256);
 
         if (!cacheFile.exists()) {
             // High log level, but during regular operation this will indicate when an artifact is newly picked up, so useful to know.
@@ -288,13 +357,20 @@ public class ArtifactoryRepositoryImpl extends BaseMavenRepository {
                 final HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
                 try (InputStream is = response.body(); ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
                     if (response.statusCode() == 200 || response.statusCode() == 204) {
-                        try (FileOutputStream fos = new FileOutputStream(cacheFile); TeeOutputStream tos = new TeeOutputStream(fos, baos)) {
-                            IOUtils.copy(is, tos);
-                            if (baos.size() <= CACHE_ENTRY_MAX_LENGTH) {
-                                final String value = baos.toString(StandardCharsets.UTF_8);
-                                LOGGER.log(Level.FINE, () -> "Caching in memory: " + url + " with content: " + value);
-                                this.cache.put(url, value);
+                        // Download to a temporary file first so concurrent readers never see a partially written cache file
+                        final File tmpFile = File.createTempFile(cacheFile.getName(), ".tmp", parentFile);
+                        try {
+                            try (FileOutputStream fos = new FileOutputStream(tmpFile); TeeOutputStream tos = new TeeOutputStream(fos, baos)) {
+                                IOUtils.copy(is, tos);
                             }
+                            Files.move(tmpFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                        } finally {
+                            Files.deleteIfExists(tmpFile.toPath());
+                        }
+                        if (baos.size() <= CACHE_ENTRY_MAX_LENGTH) {
+                            final String value = baos.toString(StandardCharsets.UTF_8);
+                            LOGGER.log(Level.FINE, () -> "Caching in memory: " + url + " with content: " + value);
+                            this.cache.put(url, value);
                         }
                     } else {
                         IOUtils.copy(is, baos);
@@ -1,34 +1,52 @@
 package io.jenkins.update_center;
 
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import hudson.util.VersionNumber;
-import org.apache.commons.io.IOUtils;
+import io.jenkins.update_center.util.Environment;
 import org.kohsuke.args4j.Option;
 
 import javax.annotation.CheckForNull;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class DirectoryTreeBuilder {
     private static final Logger LOGGER = Logger.getLogger(DirectoryTreeBuilder.class.getName());
 
+    private static final int INDEX_THREADS = Environment.getInteger("INDEX_THREADS", Runtime.getRuntime().availableProcessors());
+
     /**
      * Directory at https://updates.jenkins.io/latest/ containing index.html and .htaccess to latest releases of all components.
      */
     @Option(name = "--latest-links-directory", usage = "Directory to contain links to latest releases and .htaccess redirects")
     public File latest;
 
+    /**
+     * Name of the RewriteMap declared in the web server configuration for the redirects in {@link #latest}.
+     */
+    @Option(name = "--latest-links-rewrite-map", usage = "Write redirects in --latest-links-directory to rewrite-map.txt, to be declared as a RewriteMap with this name, and look them up with a single rule in .htaccess")
+    @CheckForNull public String latestRewriteMap;
+
+    @Option(name = "--latest-links-nginx-map", usage = "Also write redirects in --latest-links-directory to nginx-map.conf for inclusion in an nginx map block")
+    public boolean latestNginxMap;
+
     /**
      * Write a directory tree to the specified directory tree that contains all core (war) and plugin (hpi) releases.
      *
@@ -39,7 +57,28 @@ public class DirectoryTreeBuilder {
     public File download = null;
 
     /**
-     * Build the https://updates.jenkins.io/download/ directory structure that only contains index.html files.
+     * Records staged artifacts, so that unchanged artifacts do not need to be checked in later executions.
+     */
+    @Option(name = "--staging-journal", usage = "Record artifacts staged in --downloads-directory in this file, and skip checking unchanged artifacts in later executions")
+    @CheckForNull public File stagingJournal = null;
+
+    /**
+     * Check staged files in {@link #download} against repository checksums instead of staging them.
+     */
+    @Option(name = "--audit-downloads", usage = "Instead of staging artifacts in --downloads-directory, check that the staged files match the checksums in the repository, without modifying the directory unless --audit-restage is set")
+    public boolean auditDownloads;
+
+    @Option(name = "--audit-restage", usage = "With --audit-downloads, stage missing and mismatching files again")
+    public boolean auditRestage;
+
+    /**
+     * Write checksum files for artifacts in {@link #download}, using the checksums from repository metadata.
+     */
+    @Option(name = "--write-checksum-files", usage = "Write .sha256 files next to artifacts in --downloads-directory, and SHA256SUMS files listing the checksums of all releases of each plugin and of core")
+    public boolean checksums;
+
+    /**
+     * Build the https://updates.jenkins.io/download/ directory structure that only contains index.html and index.json files.
      */
     @Option(name = "--download-links-directory", usage = "Build downloads web index files")
     public File wwwDownload = null;
@@ -53,7 +92,14 @@ public class DirectoryTreeBuilder {
 
     public void build(MavenRepository repo) throws IOException {
         IndexTemplateProvider indexTemplateProvider = indexTemplate == null ? new IndexTemplateProvider() : new JenkinsIndexTemplateProvider(indexTemplate);
-        try (LatestLinkBuilder latestLinks = prepareLatestLinkBuilder(indexTemplateProvider)) {
+        // index.html and checksum files are independent of each other and made from metadata, so generate them concurrently
+        final ExecutorService executor = Executors.newFixedThreadPool(INDEX_THREADS);
+        final List<Future<?>> tasks = new ArrayList<>();
+        try (LatestLinkBuilder latestLinks = prepareLatestLinkBuilder(indexTemplateProvider);
+             ArtifactStager stager = download == null || auditDownloads ? null : new ArtifactStager(stagingJournal);
+             DownloadsAuditor auditor = download == null || !auditDownloads ? null : new DownloadsAuditor(auditRestage)) {
+            // Unless restaging, auditing only reads the downloads directory
+            final boolean writeDownloads = auditor == null || auditRestage;
 
             /* Process plugins */
             for (Plugin plugin : repo.listJenkinsPlugins()) {
@@ -65,18 +111,33 @@ public class DirectoryTreeBuilder {
 
                 if (download != null) {
                     for (HPI v : artifacts.values()) {
-                        stage(v, new File(download, "plugins/" + plugin.getArtifactId() + "/" + v.version + "/" + plugin.getArtifactId() + ".hpi"));
+                        final File dst = new File(download, "plugins/" + plugin.getArtifactId() + "/" + v.version + "/" + plugin.getArtifactId() + ".hpi");
+                        if (auditor != null) {
+                            auditor.audit(v, dst);
+                        } else {
+                            stager.stage(v, dst);
+                        }
                     }
-                    if (!artifacts.isEmpty()) {
+                    if (!artifacts.isEmpty() && writeDownloads) {
                         createLatestSymlink(plugin);
                     }
+                    if (checksums && writeDownloads) {
+                        tasks.add(executor.submit(() -> {
+                            writeChecksums(new File(download, "plugins/" + plugin.getArtifactId()), artifacts.values(),
+                                    v -> v.version + "/" + plugin.getArtifactId() + ".hpi");
+                            return null;
+                        }));
+                    }
                 }
 
                 if (wwwDownload != null) {
                     String permalink = String.format("/latest/%s.hpi", plugin.getArtifactId());
-                    buildIndex(new File(wwwDownload, "plugins/" + plugin.getArtifactId()),
-                            plugin.getLatest().getName(), plugin.getArtifactId(),
-                            artifacts.values(), permalink, indexTemplateProvider);
+                    tasks.add(executor.submit(() -> {
+                        buildIndex(new File(wwwDownload, "plugins/" + plugin.getArtifactId()),
+                                plugin.getLatest().getName(), plugin.getArtifactId(),
+                                artifacts.values(), permalink, indexTemplateProvider);
+                        return null;
+                    }));
                 }
             }
 
@@ -90,15 +151,52 @@ public class DirectoryTreeBuilder {
 
                 if (download != null) {
                     for (JenkinsWar w : jenkinsWars.values()) {
-                        stage(w, new File(download, "war/" + w.version + "/" + w.getFileName()));
+                        final File dst = new File(download, "war/" + w.version + "/" + w.getFileName());
+                        if (auditor != null) {
+                            auditor.audit(w, dst);
+                        } else {
+                            stager.stage(w, dst);
+                        }
+                    }
+                    if (checksums && writeDownloads) {
+                        tasks.add(executor.submit(() -> {
+                            writeChecksums(new File(download, "war"), jenkinsWars.values(), w -> w.version + "/" + w.getFileName());
+                            return null;
+                        }));
                     }
                 }
 
                 if (wwwDownload != null) {
-                    buildIndex(new File(wwwDownload, "war/"), "jenkins.war", null,
-                            jenkinsWars.values(), "/latest/jenkins.war", indexTemplateProvider);
+                    tasks.add(executor.submit(() -> {
+                        buildIndex(new File(wwwDownload, "war/"), "jenkins.war", null,
+                                jenkinsWars.values(), "/latest/jenkins.war", indexTemplateProvider);
+                        return null;
+                    }));
                 }
             }
+
+            awaitTasks(tasks);
+
+            if (stager != null) {
+                stager.finish();
+            }
+            if (auditor != null) {
+                auditor.finish();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void awaitTasks(List<Future<?>> tasks) throws IOException {
+        try {
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            throw new IOException("Interrupted while generating index or checksum files", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to generate index or checksum file", e.getCause());
         }
     }
 
@@ -110,7 +208,7 @@ public class DirectoryTreeBuilder {
         if (!latest.mkdirs() && !latest.isDirectory()) {
             throw new IOException("Failed to created 'latest' directory at " + latest);
         }
-        return new LatestLinkBuilder(latest, service);
+        return new LatestLinkBuilder(latest, service, latestRewriteMap, latestNginxMap);
     }
 
     /**
@@ -139,44 +237,40 @@ public class DirectoryTreeBuilder {
     }
 
     /**
-     * Stages an artifact into the specified location.
+     * Writes a {@code .sha256} file next to each artifact, and a {@code SHA256SUMS} file listing all of them, in
+     * {@code sha256sum} format. The checksums are taken from the repository metadata, so artifacts are not read.
+     * Files are only replaced when their content changes.
      *
-     * @param a the artifact to stage
-     * @param dst the staging location
-     * @throws IOException when a problem occurs during file operations
+     * @param dir the directory to write {@code SHA256SUMS} to
+     * @param artifacts the artifacts
+     * @param path the path of an artifact relative to {@code dir}
      */
-    @SuppressFBWarnings(value="COMMAND_INJECTION",
-            justification="No injection risk from absolute path args to ln -s")
-    protected void stage(MavenArtifact a, File dst) throws IOException {
-        File src = a.resolve();
-        if (dst.exists() && dst.lastModified() == src.lastModified() && dst.length() == src.length()) {
-            LOGGER.log(Level.FINEST, () -> "Destination file " + dst + " for artifact " + a + " already exists");
-            return;   // already up to date
-        }
-
-        // TODO: directory and the war file should have the release timestamp
-        final File parentFile = dst.getParentFile();
-        if (!parentFile.mkdirs() && !parentFile.isDirectory()) {
-            throw new IOException("Failed to create " + parentFile);
+    static <T extends MavenArtifact> void writeChecksums(File dir, Collection<T> artifacts, Function<T, String> path) throws IOException {
+        final StringBuilder sums = new StringBuilder();
+        for (T artifact : artifacts) {
+            final MavenRepository.ArtifactMetadata metadata = artifact.getMetadata();
+            if (metadata == null || metadata.sha256 == null) {
+                LOGGER.log(Level.FINE, () -> "No SHA-256 checksum for " + artifact);
+                continue;
+            }
+            final String sha256 = IndexHtmlBuilder.base64ToHex(metadata.sha256);
+            final String relativePath = path.apply(artifact);
+            final File file = new File(dir, relativePath);
+            writeString(new File(file.getPath() + ".sha256"), sha256 + "  " + file.getName() + "\n");
+            sums.append(sha256).append("  ").append(relativePath).append('\n');
         }
+        writeString(new File(dir, "SHA256SUMS"), sums.toString());
+    }
 
-        ProcessBuilder pb = new ProcessBuilder();
-        if (System.getProperty("os.name").toLowerCase(Locale.US).contains("windows")) {
+    private static void writeString(File file, String content) throws IOException {
+        final byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        // Most checksum files are unchanged, so avoid writing a temporary file for each of them
+        if (file.isFile() && file.length() == bytes.length && Arrays.equals(Files.readAllBytes(file.toPath()), bytes)) {
             return;
         }
-        pb.command("ln", "-f", src.getAbsolutePath(), dst.getAbsolutePath());
-        Process p = pb.start();
-        try {
-            if (p.waitFor() != 0) {
-                throw new IOException("'ln -f " + src.getAbsolutePath() + " " + dst.getAbsolutePath() +
-                        "' failed with code " + p.exitValue() + "\nError: " + IOUtils.toString(p.getErrorStream()) + "\nOutput: " + IOUtils.toString(p.getInputStream()));
-            } else {
-                LOGGER.log(Level.INFO, "Created new download file " + dst + " from " + src);
-            }
-        } catch (InterruptedException ex) {
-            LOGGER.log(Level.WARNING, "Interrupted creating " + dst + " from " + src, ex);
+        try (OutputStream os = OutputFiles.getInstance().newOutputStream(file)) {
+            os.write(bytes);
         }
-
     }
 
     private void buildIndex(File dir, String title, String subtitle,
@@ -185,7 +279,7 @@ public class DirectoryTreeBuilder {
         List<MavenArtifact> list = new ArrayList<>(versions);
         list.sort(Comparator.comparing(MavenArtifact::getVersion).reversed());
 
-        try (IndexHtmlBuilder index = service.newIndexHtmlBuilder(dir, title).withSubtitle(subtitle)) {
+        try (IndexHtmlBuilder index = service.newIndexHtmlBuilder(dir, title, true).withSubtitle(subtitle)) {
             index.add(permalink, "permalink to the latest");
             for (MavenArtifact a : list) {
                 try {
@@ -0,0 +1,166 @@
+package io.jenkins.update_center;
+
+import io.jenkins.update_center.util.Environment;
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Checks that the files staged in a downloads directory have the SHA-256 checksums recorded in the repository.
+ *
+ * <p>Files are hashed on a pool of {@code AUDIT_THREADS} threads, reading them through memory mappings of
+ * {@code AUDIT_MAPPING_MB} each. Local SSDs are usually saturated by a few threads, while network file systems benefit
+ * from more concurrent reads to hide latency. Missing and mismatching files are reported, and optionally staged
+ * again from the (verified) repository artifact.</p>
+ */
+public class DownloadsAuditor implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(DownloadsAuditor.class.getName());
+
+    private static final int AUDIT_THREADS = Environment.getInteger("AUDIT_THREADS", 2 * Runtime.getRuntime().availableProcessors());
+
+    private static final long MAPPING_SIZE = Environment.getInteger("AUDIT_MAPPING_MB", 64) * 1024L * 1024L;
+
+    private final ThreadPoolExecutor executor;
+    private final boolean restage;
+
+    private final AtomicInteger matching = new AtomicInteger();
+    private final AtomicInteger missing = new AtomicInteger();
+    private final AtomicInteger mismatching = new AtomicInteger();
+    private final AtomicInteger restaged = new AtomicInteger();
+    private final AtomicInteger unknown = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    /**
+     * @param restage whether to stage missing and mismatching files again
+     */
+    public DownloadsAuditor(boolean restage) {
+        this.restage = restage;
+        this.executor = new ThreadPoolExecutor(AUDIT_THREADS, AUDIT_THREADS, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(AUDIT_THREADS * 64), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Schedules checking the staged file of an artifact.
+     *
+     * @param artifact the artifact
+     * @param dst the staging location
+     */
+    public void audit(MavenArtifact artifact, File dst) {
+        executor.execute(() -> {
+            try {
+                final MavenRepository.ArtifactMetadata metadata = artifact.getMetadata();
+                if (metadata == null || metadata.sha256 == null) {
+                    unknown.incrementAndGet();
+                    LOGGER.log(Level.FINE, () -> "No SHA-256 checksum for " + artifact);
+                    return;
+                }
+                final byte[] expected = Base64.decodeBase64(metadata.sha256);
+                if (!dst.isFile()) {
+                    missing.incrementAndGet();
+                    LOGGER.log(Level.WARNING, () -> "Missing staged file " + dst + " for " + artifact);
+                } else if (!MessageDigest.isEqual(expected, sha256(dst.toPath()))) {
+                    mismatching.incrementAndGet();
+                    LOGGER.log(Level.WARNING, () -> "Staged file " + dst + " does not match the checksum of " + artifact);
+                } else {
+                    matching.incrementAndGet();
+                    return;
+                }
+                if (restage) {
+                    restage(artifact, dst, expected);
+                }
+            } catch (IOException | RuntimeException e) {
+                failed.incrementAndGet();
+                LOGGER.log(Level.WARNING, "Failed to audit " + dst + " for " + artifact, e);
+            }
+        });
+    }
+
+    private void restage(MavenArtifact artifact, File dst, byte[] expected) throws IOException {
+        final File src = artifact.resolve();
+        if (!MessageDigest.isEqual(expected, sha256(src.toPath()))) {
+            throw new IOException("Resolved file " + src + " does not match the checksum of " + artifact);
+        }
+        final File parentFile = dst.getParentFile();
+        if (!parentFile.mkdirs() && !parentFile.isDirectory()) {
+            throw new IOException("Failed to create " + parentFile);
+        }
+        ArtifactStager.link(src.toPath(), dst.toPath());
+        restaged.incrementAndGet();
+        LOGGER.log(Level.INFO, "Staged " + dst + " again from " + src);
+    }
+
+    /**
+     * Computes the SHA-256 checksum of a file, reading it through memory mappings.
+     *
+     * @param file the file
+     * @return the checksum
+     * @throws IOException if reading fails
+     */
+    static byte[] sha256(Path file) throws IOException {
+        final MessageDigest digest = DigestUtils.getSha256Digest();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            for (long position = 0; position < size; position += MAPPING_SIZE) {
+                digest.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAPPING_SIZE, size - position)));
+            }
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Waits for all scheduled files to be checked, and logs the results.
+     *
+     * @throws IOException if any staged file is missing or does not match its checksum and was not staged again, or
+     *                     if checking any file failed
+     */
+    public void finish() throws IOException {
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                LOGGER.log(Level.INFO, () -> "Waiting for audit to complete, " + executor.getQueue().size() + " files queued");
+            }
+        } catch (InterruptedException e) {
+            throw new IOException("Interrupted while auditing staged files", e);
+        }
+        LOGGER.log(Level.INFO, () -> "Audited staged files: " + matching.get() + " matching, " + missing.get() + " missing, "
+                + mismatching.get() + " not matching, " + restaged.get() + " staged again, " + unknown.get()
+                + " without checksum, " + failed.get() + " failed");
+        final int problems = missing.get() + mismatching.get() - restaged.get();
+        if (problems > 0 || failed.get() > 0) {
+            throw new IOException("Audit found " + problems + " missing or mismatching staged files, and failed for " + failed.get() + " files");
+        }
+    }
+
+    public int getMatching() {
+        return matching.get();
+    }
+
+    public int getMissing() {
+        return missing.get();
+    }
+
+    public int getMismatching() {
+        return mismatching.get();
+    }
+
+    public int getRestaged() {
+        return restaged.get();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
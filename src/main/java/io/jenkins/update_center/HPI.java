@@ -25,14 +25,9 @@ package io.jenkins.update_center;
 
 import com.alibaba.fastjson.annotation.JSONField;
 import hudson.util.VersionNumber;
-import org.apache.commons.io.IOUtils;
+import io.jenkins.update_center.util.PersistentCache;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang.StringUtils;
-import org.dom4j.Document;
-import org.dom4j.DocumentException;
-import org.dom4j.DocumentFactory;
-import org.dom4j.Element;
-import org.dom4j.Node;
-import org.dom4j.io.SAXReader;
 import org.owasp.html.HtmlPolicyBuilder;
 import org.owasp.html.HtmlSanitizer;
 import org.owasp.html.HtmlStreamEventProcessor;
@@ -40,8 +35,8 @@ import org.owasp.html.HtmlStreamEventReceiver;
 import org.owasp.html.HtmlStreamEventReceiverWrapper;
 import org.owasp.html.HtmlStreamRenderer;
 import org.owasp.html.Sanitizers;
-import org.xml.sax.SAXException;
 
+import javax.annotation.Nonnull;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -59,6 +54,7 @@ import java.util.TreeSet;
 import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
 
 /**
  * A particular version of a plugin and its metadata.
@@ -67,6 +63,10 @@ import java.util.logging.Logger;
  */
 public class HPI extends MavenArtifact {
 
+    private static final Pattern VALID_CORE_DEPENDENCY = Pattern.compile("[12][.](0|[1-9][0-9]*)([.][1-9])?");
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
     private final Plugin plugin;
 
     public HPI(BaseMavenRepository repository, ArtifactCoordinates artifact, Plugin plugin) {
@@ -95,7 +95,7 @@ public class HPI extends MavenArtifact {
      * @return true if valid, false otherwise
      */
     public static boolean isValidCoreDependency(String version) {
-        return version.matches("[12][.](0|[1-9][0-9]*)([.][1-9])?");
+        return VALID_CORE_DEPENDENCY.matcher(version).matches();
     }
 
     /**
@@ -178,20 +178,63 @@ public class HPI extends MavenArtifact {
         }
     }
 
+    /**
+     * Included in the key of each cached description, increment when changing {@link #HTML_POLICY},
+     * {@link #PRE_PROCESSOR}, or the normalization of sanitized descriptions.
+     */
+    private static final String DESCRIPTION_POLICY_VERSION = "1";
+
+    private static final PersistentCache DESCRIPTION_CACHE = new PersistentCache("plugin description");
+
+    /**
+     * Loads the cache of sanitized descriptions from {@code index.jelly}, see {@link PersistentCache#load(File)}.
+     *
+     * @param file the cache file
+     */
+    public static void loadDescriptionCache(@Nonnull File file) {
+        DESCRIPTION_CACHE.load(file);
+    }
+
+    /**
+     * Writes the sanitized descriptions of all releases looked up since the cache was loaded back to its file.
+     *
+     * @throws IOException if writing fails
+     */
+    public static void saveDescriptionCache() throws IOException {
+        DESCRIPTION_CACHE.save();
+    }
+
     private String description;
 
     public String getDescription() throws IOException {
         if (description == null) {
-            String description = plainText2html(readSingleValueFromXmlFile(resolvePOM(), "/project/description"));
-
-            ArtifactCoordinates coordinates = new ArtifactCoordinates(artifact.groupId, artifact.artifactId, artifact.version, "jar");
-            try (InputStream is = repository.getZipFileEntry(new MavenArtifact(repository, coordinates), "index.jelly")) {
-                StringBuilder b = new StringBuilder();
-                HtmlStreamRenderer renderer = HtmlStreamRenderer.create(b, Throwable::printStackTrace, html -> LOGGER.log(Level.INFO, "Bad HTML: '" + html + "' in " + artifact.getGav()));
-                HtmlSanitizer.sanitize(IOUtils.toString(is, StandardCharsets.UTF_8), HTML_POLICY.apply(renderer), PRE_PROCESSOR);
-                description = b.toString().trim().replaceAll("\\s+", " ");
-            } catch (IOException e) {
-                LOGGER.log(Level.FINE, () -> "Failed to read description from index.jelly: " + e.getMessage());
+            String description = plainText2html(getPomMetadata().getDescription());
+
+            // A release's index.jelly never changes, so the sanitized description can be reused across executions
+            final MavenRepository.ArtifactMetadata metadata = getMetadata();
+            final String sha256 = metadata == null ? null : metadata.sha256;
+            final String cacheKey = sha256 == null ? null : DigestUtils.sha256Hex(DESCRIPTION_POLICY_VERSION + "\n" + artifact.getGav() + "\n" + sha256);
+            final String cached = cacheKey == null ? null : DESCRIPTION_CACHE.get(cacheKey);
+            if (cached != null) {
+                description = cached;
+            } else {
+                ArtifactCoordinates coordinates = new ArtifactCoordinates(artifact.groupId, artifact.artifactId, artifact.version, "jar");
+                try {
+                    final byte[] indexJelly = repository.getZipFileEntries(new MavenArtifact(repository, coordinates), Collections.singletonList("index.jelly")).get("index.jelly");
+                    if (indexJelly != null) {
+                        StringBuilder b = new StringBuilder();
+                        HtmlStreamRenderer renderer = HtmlStreamRenderer.create(b, Throwable::printStackTrace, html -> LOGGER.log(Level.INFO, "Bad HTML: '" + html + "' in " + artifact.getGav()));
+                        HtmlSanitizer.sanitize(new String(indexJelly, StandardCharsets.UTF_8), HTML_POLICY.apply(renderer), PRE_PROCESSOR);
+                        description = WHITESPACE.matcher(b.toString().trim()).replaceAll(" ");
+                        if (cacheKey != null) {
+                            DESCRIPTION_CACHE.put(cacheKey, description);
+                        }
+                    } else {
+                        LOGGER.log(Level.FINE, () -> "Failed to read description from index.jelly of " + artifact.getGav());
+                    }
+                } catch (IOException e) {
+                    LOGGER.log(Level.FINE, () -> "Failed to read description from index.jelly: " + e.getMessage());
+                }
             }
             if (isAlphaOrBeta()) {
                 description = "<b>(This version is experimental and may change in backward-incompatible ways)</b><br><br>" + description;
@@ -214,9 +257,14 @@ public class HPI extends MavenArtifact {
             if(optional)
                 token = token.substring(0, token.length()-OPTIONAL_RESOLUTION.length());
 
-            String[] pieces = token.split(":");
-            name = pieces[0];
-            version = pieces[1];
+            // Like token.split(":"), but without creating an array
+            final int nameEnd = token.indexOf(':');
+            if (nameEnd < 0) {
+                throw new IllegalArgumentException("Invalid plugin dependency: " + token);
+            }
+            final int versionEnd = token.indexOf(':', nameEnd + 1);
+            name = token.substring(0, nameEnd);
+            version = token.substring(nameEnd + 1, versionEnd < 0 ? token.length() : versionEnd);
         }
 
         private static final String OPTIONAL_RESOLUTION = ";resolution:=optional";
@@ -230,7 +278,7 @@ public class HPI extends MavenArtifact {
      */
     public String getName() throws IOException {
         if (name == null) {
-            String title = readSingleValueFromXmlFile(resolvePOM(), "/project/name");
+            String title = getPomMetadata().getName();
             if (title == null || "".equals(title)) {
                 title = artifact.artifactId;
             } else {
@@ -252,64 +300,8 @@ public class HPI extends MavenArtifact {
         return name;
     }
 
-    private String readSingleValueFromXmlFile(File file, String xpath) {
-        try {
-            XmlCache.CachedValue cached = XmlCache.readCache(file, xpath);
-            if (cached == null) {
-                Document doc = xmlReader.read(file);
-                Node node = selectSingleNode(doc, xpath);
-                String ret = node != null ? ((Element) node).getTextTrim() : null;
-                XmlCache.writeCache(file, xpath, ret);
-                return ret;
-            } else {
-                return cached.value;
-            }
-        } catch (DocumentException e) {
-            return null;
-        }
-    }
-
-    private static Node selectSingleNode(Document pom, String path) {
-        Node result = pom.selectSingleNode(path);
-        if (result == null)
-            result = pom.selectSingleNode(path.replaceAll("/", "/m:"));
-        return result;
-    }
-
-    private Document getPom() throws IOException {
-        if (pom == null) {
-            pom = readPOM();
-        }
-        return pom;
-    }
-
-    /**
-     * POM parsed as a DOM.
-     */
-    private Document pom;
-
-    private static SAXReader createXmlReader() {
-        DocumentFactory factory = new DocumentFactory();
-        factory.setXPathNamespaceURIs(
-                Collections.singletonMap("m", "http://maven.apache.org/POM/4.0.0"));
-        final SAXReader reader = new SAXReader(factory);
-        try {
-            reader.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
-            reader.setFeature("http://xml.org/sax/features/external-general-entities", false);
-            reader.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
-        } catch (SAXException ex) {
-            LOGGER.log(Level.WARNING, "Failed to set safety features on SAXReader", ex);
-        }
-        return reader;
-    }
-
-    private Document readPOM() throws IOException {
-        try {
-            return xmlReader.read(resolvePOM());
-        } catch (DocumentException e) {
-            LOGGER.log(Level.INFO, "Failed to parse POM for " + artifact.getGav(), e);
-            return null;
-        }
+    private PomMetadata getPomMetadata() throws IOException {
+        return PomMetadata.of(resolvePOM());
     }
 
     private String pluginUrl;
@@ -330,7 +322,7 @@ public class HPI extends MavenArtifact {
 
             // Otherwise read the plugin URL from the POM, if any
             if (url == null) {
-                url = readSingleValueFromXmlFile(resolvePOM(), "/project/url");
+                url = getPomMetadata().getUrl();
             }
             // last fallback: GitHub URL; also prevent plugins.j.io referencing itself
             if (url == null || url.startsWith("https://plugins.jenkins.io")) {
@@ -396,24 +388,16 @@ public class HPI extends MavenArtifact {
 
     private String _getScmUrl() {
         try {
-            String scm = readSingleValueFromXmlFile(resolvePOM(), "/project/scm/url");
+            String scm = getPomMetadata().getScmUrl();
             // Try parent pom
             if (scm == null) {
                 LOGGER.log(Level.FINER, "No SCM URL found in POM for " + this.artifact.getGav());
-                Element parent = (Element) selectSingleNode(getPom(), "/project/parent");
+                ArtifactCoordinates parent = getPomMetadata().getParent();
                 if (parent != null) {
-                    try {
-                        File parentPomFile = repository.resolve(
-                                new ArtifactCoordinates(parent.element("groupId").getTextTrim(),
-                                        parent.element("artifactId").getTextTrim(),
-                                        parent.element("version").getTextTrim(), "pom"));
-                        scm = readSingleValueFromXmlFile(parentPomFile, "/project/scm/url");
-                        if (scm == null) {
-                            LOGGER.log(Level.FINER, "No SCM URL found in parent POM for " + this.artifact.getGav());
-                            // grandparent is pointless, no additional hits
-                        }
-                    } catch (Exception ex) {
-                        LOGGER.log(Level.WARNING, "Failed to read parent POM for " + this.artifact.getGav(), ex);
+                    scm = PomMetadata.ofParent(repository, parent).getScmUrl();
+                    if (scm == null) {
+                        LOGGER.log(Level.FINER, "No SCM URL found in parent POM for " + this.artifact.getGav());
+                        // grandparent is pointless, no additional hits
                     }
                 }
             }
@@ -433,23 +417,15 @@ public class HPI extends MavenArtifact {
 
     private String getScmUrlFromDeveloperConnection() {
         try {
-            String scm = readSingleValueFromXmlFile(resolvePOM(), "/project/scm/developerConnection");
+            String scm = getPomMetadata().getScmDeveloperConnection();
             // Try parent pom
             if (scm == null) {
                 LOGGER.log(Level.FINE, "No SCM developerConnection found in POM for " + this.artifact.getGav());
-                Element parent = (Element) selectSingleNode(getPom(), "/project/parent");
+                ArtifactCoordinates parent = getPomMetadata().getParent();
                 if (parent != null) {
-                    try {
-                        File parentPomFile = repository.resolve(
-                                new ArtifactCoordinates(parent.element("groupId").getTextTrim(),
-                                        parent.element("artifactId").getTextTrim(),
-                                        parent.element("version").getTextTrim(), "pom"));
-                        scm = readSingleValueFromXmlFile(parentPomFile, "/project/scm/developerConnection");
-                        if (scm == null) {
-                            LOGGER.log(Level.FINE, "No SCM developerConnection found in parent POM for " + this.artifact.getGav());
-                        }
-                    } catch (Exception ex) {
-                        LOGGER.log(Level.WARNING, "Failed to read parent POM for " + this.artifact.getGav(), ex);
+                    scm = PomMetadata.ofParent(repository, parent).getScmDeveloperConnection();
+                    if (scm == null) {
+                        LOGGER.log(Level.FINE, "No SCM developerConnection found in parent POM for " + this.artifact.getGav());
                     }
                 }
             }
@@ -517,36 +493,42 @@ public class HPI extends MavenArtifact {
         if (!scmUrlCached) {
             scmUrlCached = true;
             if (resolvePOM().exists()) {
-                String scm = _getScmUrl();
-                if (scm == null) {
-                    scm = getScmUrlFromDeveloperConnection();
-                }
-                if (scm == null) {
-                    LOGGER.log(Level.FINE, "Failed to determine SCM URL from POM or parent POM of " + this.artifact.getGav());
-                }
-                scm = interpolateProjectName(scm);
-                String originalScm = scm;
-                scm = requireHttpsGitHubJenkinsciUrl(scm);
-                if (originalScm != null && scm == null) {
-                    LOGGER.log(Level.CONFIG, "Rejecting URL outside GitHub.com/jenkinsci for " + this.artifact.getGav() + ": " + originalScm);
-                }
+                // The result only depends on these POM values, so releases with the same values share the result
+                final PomMetadata pom = getPomMetadata();
+                scmUrl = getPlugin().getScmUrl(Arrays.asList(pom.getScmUrl(), pom.getScmDeveloperConnection(), pom.getParent()), this::computeScmUrl);
+            }
+        }
+        return scmUrl;
+    }
 
-                if (scm == null) {
-                    // Last resort: check whether a ${artifactId}-plugin repo in jenkinsci exists, if so, use that
-                    scm = "https://github.com/jenkinsci/" + artifact.artifactId + "-plugin";
-                    LOGGER.log(Level.FINE, "Falling back to default pattern repo for " + this.artifact.getGav() + ": " + scm);
+    private String computeScmUrl() {
+        String scm = _getScmUrl();
+        if (scm == null) {
+            scm = getScmUrlFromDeveloperConnection();
+        }
+        if (scm == null) {
+            LOGGER.log(Level.FINE, "Failed to determine SCM URL from POM or parent POM of " + this.artifact.getGav());
+        }
+        scm = interpolateProjectName(scm);
+        String originalScm = scm;
+        scm = requireHttpsGitHubJenkinsciUrl(scm);
+        if (originalScm != null && scm == null) {
+            LOGGER.log(Level.CONFIG, "Rejecting URL outside GitHub.com/jenkinsci for " + this.artifact.getGav() + ": " + originalScm);
+        }
 
-                    String checkedScm = scm;
-                    // Check whether the fallback repo actually exists, if not, don't publish the repo name
-                    scm = requireGitHubRepoExistence(scm);
-                    if (scm == null) {
-                        LOGGER.log(Level.FINE, "Repository does not actually exist: " + checkedScm);
-                    }
-                }
-                scmUrl = scm;
+        if (scm == null) {
+            // Last resort: check whether a ${artifactId}-plugin repo in jenkinsci exists, if so, use that
+            scm = "https://github.com/jenkinsci/" + artifact.artifactId + "-plugin";
+            LOGGER.log(Level.FINE, "Falling back to default pattern repo for " + this.artifact.getGav() + ": " + scm);
+
+            String checkedScm = scm;
+            // Check whether the fallback repo actually exists, if not, don't publish the repo name
+            scm = requireGitHubRepoExistence(scm);
+            if (scm == null) {
+                LOGGER.log(Level.FINE, "Repository does not actually exist: " + checkedScm);
             }
         }
-        return scmUrl;
+        return scm;
     }
 
     private static class OrgAndRepo {
@@ -646,10 +628,8 @@ public class HPI extends MavenArtifact {
             // handle empty entry in properties file
             return new String[0];
         }
-        return labels.split("\\s+");
+        return WHITESPACE.split(labels);
     }
 
-    private static final SAXReader xmlReader = createXmlReader();
-
     private static final Logger LOGGER = Logger.getLogger(HPI.class.getName());
 }
@@ -23,39 +23,86 @@
  */
 package io.jenkins.update_center;
 
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import io.jenkins.update_center.json.DownloadIndexEntry;
+import io.jenkins.update_center.json.DownloadIndexRoot;
 import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.io.output.NullWriter;
 import org.bouncycastle.util.encoders.Base64;
 
+import javax.annotation.CheckForNull;
 import java.io.Closeable;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
- * Generates index.html that has a list of files.
+ * Generates index.html that has a list of files, and optionally index.json listing the same releases.
  *
  * @author Kohsuke Kawaguchi
  */
 public class IndexHtmlBuilder implements Closeable {
+    @CheckForNull
+    private final OutputStream htmlStream;
     private final PrintWriter out;
-    private final String template;
+    private final IndexTemplate template;
     private final String title;
     private String subtitle;
     private final String description;
-    private final StringBuilder content;
     private final String opengraphImage;
 
+    /**
+     * Entries are written directly to {@link #out} once the template up to the content has been written, unless the
+     * template is not {@link IndexTemplate#isStreamable() streamable}. In that case they are collected here.
+     */
+    @CheckForNull
+    private final StringBuilder content;
+    private final StringBuilder entry = new StringBuilder();
+    private boolean started;
+
+    private final File dir;
+    @CheckForNull
+    private final OutputStream jsonStream;
+    @CheckForNull
+    private final PrintWriter jsonOut;
+    @CheckForNull
+    private final DownloadIndexRoot json;
+
     public IndexHtmlBuilder(File dir, String title, String globalTemplate) throws IOException {
-        this.out = openIndexHtml(dir);
-        this.template = globalTemplate;
+        this(dir, title, IndexTemplate.compile(globalTemplate), false);
+    }
+
+    /**
+     * @param dir the directory to write index.html to, or {@code null} to discard the output
+     * @param title the title of the page
+     * @param template the template for index.html
+     * @param indexJson whether to also write index.json listing the releases added to this index, i.e. entries with
+     *                  checksums
+     * @throws IOException if an output file cannot be opened
+     */
+    public IndexHtmlBuilder(File dir, String title, IndexTemplate template, boolean indexJson) throws IOException {
+        this.dir = dir;
+        this.htmlStream = openIndexHtml(dir);
+        try {
+            this.jsonStream = dir != null && indexJson ? OutputFiles.getInstance().newOutputStream(new File(dir, "index.json")) : null;
+        } catch (IOException | RuntimeException ex) {
+            discard(ex, htmlStream);
+            throw ex;
+        }
+        this.out = new PrintWriter(htmlStream == null ? new NullWriter() : new OutputStreamWriter(htmlStream, StandardCharsets.UTF_8)); // ignore output without dir
+        this.jsonOut = jsonStream == null ? null : new PrintWriter(new OutputStreamWriter(jsonStream, StandardCharsets.UTF_8));
+        this.json = jsonStream == null ? null : new DownloadIndexRoot(title);
+        this.template = template;
         this.title = title;
-        this.content = new StringBuilder();
+        this.content = template.isStreamable() ? null : new StringBuilder();
         this.subtitle = "";
         this.description = "Download previous versions of " + title;
         this.opengraphImage = "https://www.jenkins.io/images/logo-title-opengraph.png";
@@ -68,18 +115,33 @@ public class IndexHtmlBuilder implements Closeable {
         return this;
     }
 
-    private static PrintWriter openIndexHtml(File dir) throws IOException {
+    @CheckForNull
+    private static OutputStream openIndexHtml(File dir) throws IOException {
         if (dir == null) {
-            return new PrintWriter(new NullWriter()); // ignore output
+            return null;
         }
 
         if (!dir.mkdirs() && !dir.isDirectory()) {
             throw new IllegalStateException("Failed to create " + dir);
         }
-        return new PrintWriter(new OutputStreamWriter(new FileOutputStream(new File(dir, "index.html")), StandardCharsets.UTF_8));
+        return OutputFiles.getInstance().newOutputStream(new File(dir, "index.html"));
     }
 
-    private String base64ToHex(String base64) {
+    /**
+     * Discards the specified output files after {@code failure}, so that neither they nor their temporary files are
+     * left behind incomplete.
+     */
+    private static void discard(Exception failure, OutputStream... streams) {
+        for (OutputStream stream : streams) {
+            try {
+                OutputFiles.discard(stream);
+            } catch (IOException | RuntimeException ex) {
+                failure.addSuppressed(ex);
+            }
+        }
+    }
+
+    static String base64ToHex(String base64) {
         byte[] decodedBase64 = Base64.decode(base64.getBytes(StandardCharsets.US_ASCII));
         return Hex.encodeHexString(decodedBase64);
     }
@@ -101,38 +163,93 @@ public class IndexHtmlBuilder implements Closeable {
     }
 
     public void add(String url, Date releaseDate, String caption, MavenRepository.ArtifactMetadata metadata, String requiredJenkinsVersion) {
+        final StringBuilder entry = this.entry;
+        entry.setLength(0);
         String releaseDateString = "";
         if (releaseDate != null) {
             releaseDateString = " Released: " + SimpleDateFormat.getDateInstance().format(releaseDate);
         }
 
-        content.append("<li").append(releaseDate == null ? "" : " id=\"" + caption + "\"")
+        entry.append("<li").append(releaseDate == null ? "" : " id=\"" + caption + "\"")
                 .append("><a class=\"version\" href='").append(url)
                 .append("'>").append(caption).append("</a><div class=\"metadata\">\n<div class=\"released\">")
                 .append(releaseDateString)
                 .append("</div>");
         if (metadata != null) {
-            content.append("\n<div class=\"checksums\">SHA-1: <code>")
-                    .append(base64ToHex(metadata.sha1)).append("</code></div>");
-            if (metadata.sha256 != null) {
-                content.append("\n<div class=\"checksums\">SHA-256: <code>")
-                        .append(base64ToHex(metadata.sha256)).append("</code></div>");
+            final String sha1 = base64ToHex(metadata.sha1);
+            final String sha256 = metadata.sha256 == null ? null : base64ToHex(metadata.sha256);
+            entry.append("\n<div class=\"checksums\">SHA-1: <code>")
+                    .append(sha1).append("</code></div>");
+            if (sha256 != null) {
+                entry.append("\n<div class=\"checksums\">SHA-256: <code>")
+                        .append(sha256).append("</code></div>");
+            }
+            if (json != null) {
+                json.releases.add(new DownloadIndexEntry(caption, url, releaseDate, sha1, sha256, requiredJenkinsVersion));
             }
         }
         if (requiredJenkinsVersion != null) {
-            content.append("\n<div class=\"core-dependency\">Requires Jenkins ").append(requiredJenkinsVersion).append("</div>");
+            entry.append("\n<div class=\"core-dependency\">Requires Jenkins ").append(requiredJenkinsVersion).append("</div>");
         }
-        content.append("</div></li>\n");
+        entry.append("</div></li>\n");
+
+        if (content != null) {
+            content.append(entry);
+        } else {
+            start();
+            out.append(entry);
+        }
+    }
+
+    /**
+     * Writes the template up to the content, unless that already happened.
+     */
+    private void start() {
+        if (!started) {
+            started = true;
+            template.writeUntilContent(out, values());
+        }
+    }
+
+    private Map<String, String> values() {
+        final Map<String, String> values = new HashMap<>();
+        values.put(IndexTemplate.TITLE, title);
+        values.put(IndexTemplate.SUBTITLE, subtitle);
+        values.put(IndexTemplate.DESCRIPTION, description);
+        values.put(IndexTemplate.OPENGRAPH_IMAGE, opengraphImage);
+        if (content != null) {
+            values.put(IndexTemplate.CONTENT, content.toString());
+        }
+        return values;
     }
 
     @Override
-    public void close() {
-        out.println(template
-                .replace("{{ title }}", title)
-                .replace("{{ subtitle }}", subtitle)
-                .replace("{{ description }}", description)
-                .replace("{{ opengraphImage }}", opengraphImage)
-                .replace("{{ content }}", content.toString()));
+    public void close() throws IOException {
+        try {
+            if (content != null) {
+                template.write(out, values());
+            } else {
+                start();
+                template.writeAfterContent(out, values());
+            }
+            out.println();
+            if (jsonOut != null) {
+                JSON.writeJSONString(jsonOut, json, SerializerFeature.DisableCircularReferenceDetect);
+            }
+        } catch (RuntimeException ex) {
+            // Write either both files, or neither
+            discard(ex, htmlStream, jsonStream);
+            throw ex;
+        }
         out.close();
+        if (jsonOut != null) {
+            jsonOut.close();
+        }
+        if (dir != null) {
+            OutputFiles.checkError(out, new File(dir, "index.html"));
+        }
+        if (jsonOut != null) {
+            OutputFiles.checkError(jsonOut, new File(dir, "index.json"));
+        }
     }
 }
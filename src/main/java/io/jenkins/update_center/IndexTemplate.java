@@ -0,0 +1,122 @@
+package io.jenkins.update_center;
+
+import javax.annotation.Nonnull;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A template for index.html files, split once into literal segments and the slots between them.
+ *
+ * <p>Pages are rendered by writing the segments and slot values directly to the output, without creating the full page
+ * as a string first. The page content can be written while rendering, see {@link #writeUntilContent(PrintWriter, Map)}.</p>
+ */
+public final class IndexTemplate {
+    public static final String TITLE = "title";
+    public static final String SUBTITLE = "subtitle";
+    public static final String DESCRIPTION = "description";
+    public static final String OPENGRAPH_IMAGE = "opengraphImage";
+    public static final String CONTENT = "content";
+
+    private static final List<String> SLOTS = Arrays.asList(TITLE, SUBTITLE, DESCRIPTION, OPENGRAPH_IMAGE, CONTENT);
+
+    /**
+     * Literal segments; {@code literals[i]} precedes {@code slots[i]}, the last one follows the last slot.
+     */
+    private final String[] literals;
+    private final String[] slots;
+
+    /**
+     * Index of the first content slot, or {@code slots.length} if there is none.
+     */
+    private final int contentSlot;
+
+    private IndexTemplate(String[] literals, String[] slots) {
+        this.literals = literals;
+        this.slots = slots;
+        final int index = Arrays.asList(slots).indexOf(CONTENT);
+        this.contentSlot = index < 0 ? slots.length : index;
+    }
+
+    /**
+     * Splits the specified template at its <code>{{ slot }}</code> placeholders.
+     *
+     * @param template the template
+     * @return the compiled template
+     */
+    @Nonnull
+    public static IndexTemplate compile(@Nonnull String template) {
+        final List<String> literals = new ArrayList<>();
+        final List<String> slots = new ArrayList<>();
+        int literalStart = 0;
+        int index = template.indexOf("{{ ");
+        while (index >= 0) {
+            final int end = template.indexOf(" }}", index + 3);
+            if (end < 0) {
+                break;
+            }
+            final String slot = template.substring(index + 3, end);
+            if (SLOTS.contains(slot)) {
+                literals.add(template.substring(literalStart, index));
+                slots.add(slot);
+                literalStart = end + 3;
+                index = template.indexOf("{{ ", literalStart);
+            } else {
+                index = template.indexOf("{{ ", index + 3);
+            }
+        }
+        literals.add(template.substring(literalStart));
+        return new IndexTemplate(literals.toArray(new String[0]), slots.toArray(new String[0]));
+    }
+
+    /**
+     * @return whether the template contains the content exactly once, so it can be written while rendering
+     */
+    public boolean isStreamable() {
+        return Arrays.stream(slots).filter(CONTENT::equals).count() == 1;
+    }
+
+    /**
+     * Writes the template.
+     *
+     * @param writer the output
+     * @param values the values of all slots
+     */
+    public void write(@Nonnull PrintWriter writer, @Nonnull Map<String, String> values) {
+        for (int i = 0; i < slots.length; i++) {
+            writer.write(literals[i]);
+            writer.write(values.get(slots[i]));
+        }
+        writer.write(literals[slots.length]);
+    }
+
+    /**
+     * Writes the template up to the content. Only supported if the template is {@link #isStreamable() streamable}.
+     *
+     * @param writer the output
+     * @param values the values of all slots other than content
+     */
+    public void writeUntilContent(@Nonnull PrintWriter writer, @Nonnull Map<String, String> values) {
+        for (int i = 0; i < contentSlot; i++) {
+            writer.write(literals[i]);
+            writer.write(values.get(slots[i]));
+        }
+        writer.write(literals[contentSlot]);
+    }
+
+    /**
+     * Writes the template after the content. Only supported if the template is {@link #isStreamable() streamable}.
+     *
+     * @param writer the output
+     * @param values the values of all slots other than content
+     */
+    public void writeAfterContent(@Nonnull PrintWriter writer, @Nonnull Map<String, String> values) {
+        writer.write(literals[contentSlot + 1]);
+        for (int i = contentSlot + 1; i < slots.length; i++) {
+            writer.write(values.get(slots[i]));
+            writer.write(literals[i + 1]);
+        }
+    }
+}
@@ -8,13 +8,29 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 
 public class IndexTemplateProvider {
-    private static String globalTemplate;
+    private static IndexTemplate globalTemplate;
 
     public IndexHtmlBuilder newIndexHtmlBuilder(File dir, String title) throws IOException {
-        if (globalTemplate == null) {
-            globalTemplate = initTemplate();
+        return newIndexHtmlBuilder(dir, title, false);
+    }
+
+    /**
+     * @param indexJson whether to also write index.json, see {@link IndexHtmlBuilder#IndexHtmlBuilder(File, String, IndexTemplate, boolean)}
+     */
+    public IndexHtmlBuilder newIndexHtmlBuilder(File dir, String title, boolean indexJson) throws IOException {
+        return new IndexHtmlBuilder(dir, title, getTemplate(), indexJson);
+    }
+
+    /**
+     * Compiles the template once, even when index files are generated concurrently.
+     */
+    private IndexTemplate getTemplate() {
+        synchronized (IndexTemplateProvider.class) {
+            if (globalTemplate == null) {
+                globalTemplate = IndexTemplate.compile(initTemplate());
+            }
+            return globalTemplate;
         }
-        return new IndexHtmlBuilder(dir, title, globalTemplate);
     }
 
     protected String initTemplate() {
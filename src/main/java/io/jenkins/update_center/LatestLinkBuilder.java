@@ -1,7 +1,7 @@
 package io.jenkins.update_center;
 
+import javax.annotation.CheckForNull;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
@@ -14,32 +14,103 @@ import java.util.logging.Logger;
  *
  * The former lists all the available symlinks, and the latter actually defines the redirects.
  *
+ * If a RewriteMap name is specified, .htaccess only contains a single rule looking up the redirect target in that map,
+ * and the redirects are written to latest/rewrite-map.txt instead. The web server configuration needs to declare the
+ * map, e.g. {@code RewriteMap latest txt:/path/to/latest/rewrite-map.txt}, or a {@code dbm} map created from the file
+ * with {@code httxt2dbm}. Optionally, the redirects are also written to latest/nginx-map.conf for inclusion in an nginx
+ * {@code map} block on {@code $uri}, keyed by request paths below {@link #NGINX_MAP_PREFIX}.
  */
 public class LatestLinkBuilder implements AutoCloseable {
     private static final Logger LOGGER = Logger.getLogger(LatestLinkBuilder.class.getName());
 
+    public static final String REWRITE_MAP_FILE = "rewrite-map.txt";
+    public static final String NGINX_MAP_FILE = "nginx-map.conf";
+
+    /**
+     * The request path of the latest/ directory, see {@link #NGINX_MAP_FILE}.
+     */
+    public static final String NGINX_MAP_PREFIX = "/latest/";
+
+    private final File dir;
     private final IndexHtmlBuilder index;
     private final PrintWriter htaccess;
+    @CheckForNull
+    private final PrintWriter rewriteMap;
+    @CheckForNull
+    private final PrintWriter nginxMap;
 
     public LatestLinkBuilder(File dir, IndexTemplateProvider service) throws IOException {
+        this(dir, service, null, false);
+    }
+
+    /**
+     * @param dir the latest/ directory
+     * @param service provides the index.html template
+     * @param rewriteMapName the name of the RewriteMap to look up redirects in, or {@code null} to write one rule per
+     *                       redirect
+     * @param nginxMap whether to write an nginx map include
+     */
+    public LatestLinkBuilder(File dir, IndexTemplateProvider service, @CheckForNull String rewriteMapName, boolean nginxMap) throws IOException {
         LOGGER.log(Level.FINE, String.format("Writing plugin symlinks and redirects to dir: %s", dir));
 
+        this.dir = dir;
+
         index = service.newIndexHtmlBuilder(dir,"Permalinks to latest files");
-        htaccess = new PrintWriter(new OutputStreamWriter(new FileOutputStream(new File(dir,".htaccess"), true), StandardCharsets.UTF_8));
+        htaccess = open(new File(dir, ".htaccess"));
 
         htaccess.println("# GENERATED. DO NOT MODIFY.");
         // Redirect directive doesn't let us write redirect rules relative to the directory .htaccess exists,
         // so we are back to mod_rewrite
         htaccess.println("RewriteEngine on");
+
+        if (rewriteMapName != null) {
+            // One map lookup per request instead of matching every rule until one applies
+            htaccess.printf("RewriteCond ${%s:$1|-} !=-%n", rewriteMapName);
+            htaccess.printf("RewriteRule ^(.+)$ ${%s:$1} [R=302,L]%n", rewriteMapName);
+            rewriteMap = open(new File(dir, REWRITE_MAP_FILE));
+            rewriteMap.println("# GENERATED. DO NOT MODIFY.");
+        } else {
+            rewriteMap = null;
+        }
+        if (nginxMap) {
+            this.nginxMap = open(new File(dir, NGINX_MAP_FILE));
+            this.nginxMap.println("# GENERATED. DO NOT MODIFY.");
+        } else {
+            this.nginxMap = null;
+        }
     }
 
-    public void close() {
-        index.close();
+    private static PrintWriter open(File file) throws IOException {
+        return new PrintWriter(new OutputStreamWriter(OutputFiles.getInstance().newOutputStream(file), StandardCharsets.UTF_8));
+    }
+
+    public void close() throws IOException {
         htaccess.close();
+        if (rewriteMap != null) {
+            rewriteMap.close();
+        }
+        if (nginxMap != null) {
+            nginxMap.close();
+        }
+        index.close();
+        OutputFiles.checkError(htaccess, new File(dir, ".htaccess"));
+        if (rewriteMap != null) {
+            OutputFiles.checkError(rewriteMap, new File(dir, REWRITE_MAP_FILE));
+        }
+        if (nginxMap != null) {
+            OutputFiles.checkError(nginxMap, new File(dir, NGINX_MAP_FILE));
+        }
     }
 
     public void add(String localPath, String target) throws IOException {
-        htaccess.printf("RewriteRule ^%s$ %s [R=302,L]%n", localPath.replace(".", "\\."), target);
+        if (rewriteMap != null) {
+            rewriteMap.printf("%s %s%n", localPath, target);
+        } else {
+            htaccess.printf("RewriteRule ^%s$ %s [R=302,L]%n", localPath.replace(".", "\\."), target);
+        }
+        if (nginxMap != null) {
+            nginxMap.printf("\"%s%s\" \"%s\";%n", NGINX_MAP_PREFIX, localPath, target);
+        }
         index.add(localPath, localPath);
     }
 }
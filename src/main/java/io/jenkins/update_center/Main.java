@@ -31,6 +31,7 @@ import io.jenkins.update_center.args4j.Default;
 import io.jenkins.update_center.args4j.LevelOptionHandler;
 import io.jenkins.update_center.json.PlatformPluginsRoot;
 import io.jenkins.update_center.json.RecentReleasesRoot;
+import io.jenkins.update_center.json.TierRouting;
 import io.jenkins.update_center.json.TieredUpdateSitesGenerator;
 import io.jenkins.update_center.json.PluginDocumentationUrlsRoot;
 import io.jenkins.update_center.wrappers.AlphaBetaOnlyRepository;
@@ -50,10 +51,9 @@ import org.kohsuke.args4j.Option;
 import javax.annotation.CheckForNull;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
+import java.io.Writer;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.nio.charset.StandardCharsets;
@@ -107,6 +107,9 @@ public class Main {
     @Option(name = "--dynamic-tier-list-file", usage = "Generate tier list JSON file at the specified path. If this option is set, we skip generating all other output.")
     @CheckForNull public File tierListFile;
 
+    @Option(name = "--tier-routing-directory", usage = "With --dynamic-tier-list-file, also write a lookup table routing Jenkins versions to tiers to this directory, as JSON and as a RewriteMap with rules using it")
+    @CheckForNull public File tierRoutingDirectory;
+
     @Option(name = "--www-dir", usage = "Generate simple output files, JSON(ish) and others, into this directory")
     @CheckForNull public File www;
 
@@ -119,6 +122,15 @@ public class Main {
     @Option(name = "--generate-release-history", usage = "Generate release history")
     public boolean generateReleaseHistory;
 
+    @Option(name = "--release-history-cache", usage = "Store serialized release history segments that are unlikely to change in this file, and reuse them in later executions")
+    @CheckForNull public File releaseHistoryCache;
+
+    @Option(name = "--pom-metadata-cache", usage = "Store values read from POM files in this file, and reuse them in later executions instead of parsing unchanged POM files again")
+    @CheckForNull public File pomMetadataCache;
+
+    @Option(name = "--description-cache", usage = "Store sanitized plugin descriptions in this file, and reuse them in later executions instead of sanitizing index.jelly of the same releases again")
+    @CheckForNull public File descriptionCache;
+
     @Option(name = "--generate-plugin-versions", usage = "Generate plugin versions")
     public boolean generatePluginVersions;
 
@@ -148,7 +160,9 @@ public class Main {
     /* These fields are other objects configurable with command-line options */
     private Signer signer = new Signer();
     private MetadataWriter metadataWriter = new MetadataWriter();
+    private UpdateCenterDeltaWriter updateCenterDeltaWriter = new UpdateCenterDeltaWriter();
     private DirectoryTreeBuilder directoryTreeBuilder = new DirectoryTreeBuilder();
+    private OutputFiles outputFiles = new OutputFiles();
 
 
     public static void main(String[] args) throws Exception {
@@ -173,7 +187,9 @@ public class Main {
         CmdLineParser p = new CmdLineParser(this);
         new ClassParser().parse(signer, p);
         new ClassParser().parse(metadataWriter, p);
+        new ClassParser().parse(updateCenterDeltaWriter, p);
         new ClassParser().parse(directoryTreeBuilder, p);
+        new ClassParser().parse(outputFiles, p);
         try {
             p.parseArgument(args);
 
@@ -189,7 +205,7 @@ public class Main {
                         // TODO combine args array and this list
                         String[] invocationArgs = line.trim().split(" +");
 
-                        resetArguments(this, signer, metadataWriter, directoryTreeBuilder);
+                        resetArguments(this, signer, metadataWriter, updateCenterDeltaWriter, directoryTreeBuilder, outputFiles);
 
                         p.parseArgument(invocationArgs);
                         run();
@@ -243,11 +259,36 @@ public class Main {
             PACKAGE_LOGGER.setLevel(level);
         }
 
+        OutputFiles.initialize(outputFiles);
+        if (pomMetadataCache != null) {
+            PomMetadata.loadPersistentCache(pomMetadataCache);
+        }
+        if (descriptionCache != null) {
+            HPI.loadDescriptionCache(descriptionCache);
+        }
+        try {
+            generate();
+            if (pomMetadataCache != null) {
+                PomMetadata.savePersistentCache();
+            }
+            if (descriptionCache != null) {
+                HPI.saveDescriptionCache();
+            }
+        } finally {
+            outputFiles.finish();
+        }
+    }
+
+    private void generate() throws Exception {
         MavenRepository repo = createRepository();
         initializeLatestPluginVersions(skipLatestPluginRelease);
 
         if (tierListFile != null) {
-            new TieredUpdateSitesGenerator().withRepository(repo).write(tierListFile, prettyPrint);
+            final TieredUpdateSitesGenerator tiers = new TieredUpdateSitesGenerator().withRepository(repo);
+            tiers.write(tierListFile, prettyPrint);
+            if (tierRoutingDirectory != null) {
+                new TierRouting(tiers.weeklyCores, tiers.stableCores).writeTo(tierRoutingDirectory, prettyPrint);
+            }
             return;
         }
 
@@ -257,6 +298,7 @@ public class Main {
             final String signedUpdateCenterJson = new UpdateCenterRoot(id, connectionCheckUrl, repo, new File(Main.resourcesDir, WARNINGS_JSON_FILENAME)).encodeWithSignature(signer, prettyPrint);
             writeToFile(updateCenterPostCallJson(signedUpdateCenterJson), new File(www, UPDATE_CENTER_JSON_FILENAME));
             writeToFile(signedUpdateCenterJson, new File(www, UPDATE_CENTER_ACTUAL_JSON_FILENAME));
+            updateCenterDeltaWriter.writeDeltas(signedUpdateCenterJson, www, signer, prettyPrint);
         }
 
         if (generatePluginDocumentationUrls) {
@@ -268,7 +310,7 @@ public class Main {
         }
 
         if (generateReleaseHistory) {
-            new ReleaseHistoryRoot(repo).write(new File(www, RELEASE_HISTORY_JSON_FILENAME), prettyPrint);
+            new ReleaseHistoryRoot(repo, releaseHistoryCache).write(new File(www, RELEASE_HISTORY_JSON_FILENAME), prettyPrint);
         }
 
         if (generateRecentReleases) {
@@ -287,13 +329,10 @@ public class Main {
     }
 
     private static void writeToFile(String string, final File file) throws IOException {
-        File parentFile = file.getParentFile();
-        if (parentFile != null && !parentFile.isDirectory() && !parentFile.mkdirs()) {
-            throw new IOException("Failed to create parent directory " + parentFile);
+        // Not a PrintWriter, so failures to replace the file when closing are reported
+        try (Writer writer = new OutputStreamWriter(OutputFiles.getInstance().newOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write(string);
         }
-        PrintWriter rhpw = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
-        rhpw.print(string);
-        rhpw.close();
     }
 
     private void initializeLatestPluginVersions(boolean skip) throws IOException {
@@ -0,0 +1,66 @@
+package io.jenkins.update_center;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+
+/**
+ * The main attributes of an artifact's manifest that are used during update site generation.
+ *
+ * <p>A {@link Manifest} holds all attributes in hash maps, which add up when retained for every release of every
+ * plugin. This only keeps the values of known attributes, in a single array.</p>
+ */
+public final class ManifestAttributes {
+    /**
+     * The names of the attributes that are retained. Add attribute names here before looking them up.
+     */
+    private static final List<String> NAMES = Arrays.asList(
+            "Jenkins-Version",
+            "Hudson-Version",
+            "Compatible-Since-Version",
+            "Plugin-Dependencies",
+            "Url");
+
+    private final String[] values;
+
+    private ManifestAttributes(String[] values) {
+        this.values = values;
+    }
+
+    /**
+     * Extracts the retained attributes from the specified manifest.
+     *
+     * @param manifest the manifest
+     * @return the retained attributes
+     */
+    @Nonnull
+    public static ManifestAttributes of(@Nonnull Manifest manifest) {
+        final Attributes attributes = manifest.getMainAttributes();
+        final String[] values = new String[NAMES.size()];
+        for (int i = 0; i < values.length; i++) {
+            final String value = attributes.getValue(NAMES.get(i));
+            // Core version values are shared by most releases
+            values[i] = value == null || value.length() > 32 ? value : value.intern();
+        }
+        return new ManifestAttributes(values);
+    }
+
+    /**
+     * Returns the value of the specified main attribute, like {@link Attributes#getValue(String)}.
+     *
+     * @param name the attribute name
+     * @return the value, or {@code null} if the attribute is not present
+     * @throws IllegalArgumentException if the attribute is not retained
+     */
+    @CheckForNull
+    public String getValue(@Nonnull String name) {
+        final int index = NAMES.indexOf(name);
+        if (index < 0) {
+            throw new IllegalArgumentException("Manifest attribute not retained: " + name);
+        }
+        return values[index];
+    }
+}
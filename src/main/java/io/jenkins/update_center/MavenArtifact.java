@@ -25,6 +25,7 @@ package io.jenkins.update_center;
 
 import hudson.util.VersionNumber;
 import io.jenkins.update_center.util.Environment;
+import org.apache.commons.lang3.StringUtils;
 
 import javax.annotation.Nonnull;
 import java.io.File;
@@ -32,12 +33,11 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.text.SimpleDateFormat;
-import java.util.Calendar;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
 import java.util.Date;
-import java.util.GregorianCalendar;
 import java.util.Locale;
-import java.util.jar.Attributes;
-import java.util.jar.Manifest;
 
 /**
  * Artifact from a Maven repository and its metadata.
@@ -54,7 +54,7 @@ public class MavenArtifact {
     public final String version;
     private File hpi;
 
-    private Manifest manifest;
+    private ManifestAttributes manifestAttributes;
 
     public MavenArtifact(@Nonnull BaseMavenRepository repository, @Nonnull ArtifactCoordinates artifact) {
         this.artifact = artifact;
@@ -86,8 +86,7 @@ public class MavenArtifact {
     }
 
     public boolean isAlphaOrBeta() {
-        String s = version.toLowerCase(Locale.ENGLISH);
-        return s.contains("alpha") || s.contains("beta");
+        return StringUtils.containsIgnoreCase(version, "alpha") || StringUtils.containsIgnoreCase(version, "beta");
     }
 
     public String getTimestampAsString() throws IOException {
@@ -98,17 +97,11 @@ public class MavenArtifact {
     }
 
     public Date getTimestampAsDate() throws IOException {
-        long lastModified = getTimestamp();
-        
-
-        Date lastModifiedDate = new Date(lastModified);
-        Calendar cal = new GregorianCalendar();
-        cal.setTime(lastModifiedDate);
-        cal.set(Calendar.HOUR_OF_DAY, 0);
-        cal.set(Calendar.MINUTE, 0);
-        cal.set(Calendar.SECOND, 0);
-        cal.set(Calendar.MILLISECOND, 0);
-        return cal.getTime();
+        return truncateToDay(getTimestamp());
+    }
+
+    static Date truncateToDay(long timestamp) {
+        return Date.from(Instant.ofEpochMilli(timestamp).atZone(ZoneId.systemDefault()).truncatedTo(ChronoUnit.DAYS).toInstant());
     }
     
     public static SimpleDateFormat getDateFormat() {
@@ -119,15 +112,11 @@ public class MavenArtifact {
         return repository.getMetadata(this).timestamp;
     }
 
-    public Manifest getManifest() throws IOException {
-        if (manifest==null) {
-            manifest = repository.getManifest(this);
+    public ManifestAttributes getManifestAttributes() throws IOException {
+        if (manifestAttributes == null) {
+            manifestAttributes = ManifestAttributes.of(repository.getManifest(this));
         }
-        return manifest;
-    }
-
-    public Attributes getManifestAttributes() throws IOException {
-        return getManifest().getMainAttributes();
+        return manifestAttributes;
     }
 
     /**
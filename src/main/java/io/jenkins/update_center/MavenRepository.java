@@ -1,12 +1,14 @@
 package io.jenkins.update_center;
 
 import hudson.util.VersionNumber;
+import org.apache.commons.io.IOUtils;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collection;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.jar.Manifest;
@@ -36,6 +38,28 @@ public interface MavenRepository {
 
     InputStream getZipFileEntry(MavenArtifact artifact, String path) throws IOException;
 
+    /**
+     * Reads several entries of an artifact archive in one operation.
+     * Implementations should override this if they can read all entries at once, e.g. in a single pass over a locally
+     * available archive. By default, each entry is read using {@link #getZipFileEntry(MavenArtifact, String)}.
+     *
+     * @param artifact the artifact
+     * @param paths the paths of the entries in the archive
+     * @return a map from path to content; entries that could not be read are not included
+     * @throws IOException when an exception contacting the artifacts repository occurs
+     */
+    default Map<String, byte[]> getZipFileEntries(MavenArtifact artifact, Collection<String> paths) throws IOException {
+        final Map<String, byte[]> entries = new LinkedHashMap<>();
+        for (String path : paths) {
+            try (InputStream is = getZipFileEntry(artifact, path)) {
+                entries.put(path, IOUtils.toByteArray(is));
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, () -> "Failed to read " + path + " from " + artifact.artifact + ": " + e.getMessage());
+            }
+        }
+        return entries;
+    }
+
     File resolve(ArtifactCoordinates artifact) throws IOException;
 
     default File resolve(ArtifactCoordinates a, String packaging, String classifier) throws IOException {
@@ -51,21 +75,8 @@ public interface MavenRepository {
      * @throws IOException when an exception contacting the artifacts repository occurs
      */
     default Map<Date,Map<String,HPI>> listPluginsByReleaseDate() throws IOException {
-        Collection<Plugin> all = listJenkinsPlugins();
-
-        Map<Date, Map<String,HPI>> plugins = new TreeMap<>();
-        // TODO this is weird, we only include one release per plugin and day, and it's random which one if there are multiple
-
-        for (Plugin plugin : all) {
-            for (HPI hpi : plugin.getArtifacts().values()) {
-                Date releaseDate = hpi.getTimestampAsDate();
-                LOGGER.log(Level.FINE, "adding " + hpi.artifact.artifactId + ":" + hpi.version);
-                Map<String, HPI> pluginsOnDate = plugins.computeIfAbsent(releaseDate, k -> new TreeMap<>());
-                pluginsOnDate.put(plugin.getArtifactId(),hpi);
-            }
-        }
-
-        return plugins;
+        // TODO this is weird, we only include one release per plugin and day (the last one)
+        return ReleaseIndex.of(listJenkinsPlugins()).getReleasesByDate();
     }
 
     class ArtifactMetadata {
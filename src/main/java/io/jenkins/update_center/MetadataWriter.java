@@ -8,8 +8,8 @@ import org.kohsuke.args4j.Option;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 import java.util.TreeMap;
@@ -52,20 +52,20 @@ public class MetadataWriter {
             if (wars.isEmpty()) {
                 LOGGER.log(Level.WARNING, () -> "Cannot write " + LATEST_CORE_FILENAME + " because there are no core versions in this update site");
             } else {
-                try (final FileOutputStream output = new FileOutputStream(new File(outputDirectory, LATEST_CORE_FILENAME))) {
+                try (final OutputStream output = OutputFiles.getInstance().newOutputStream(new File(outputDirectory, LATEST_CORE_FILENAME))) {
                     IOUtils.write(wars.firstKey().toString(), output, StandardCharsets.UTF_8);
                 }
             }
         }
 
         if (generatePluginCount) {
-            try (final FileOutputStream output = new FileOutputStream(new File(outputDirectory, PLUGIN_COUNT_FILENAME))) {
+            try (final OutputStream output = OutputFiles.getInstance().newOutputStream(new File(outputDirectory, PLUGIN_COUNT_FILENAME))) {
                 IOUtils.write(Integer.toString(repository.listJenkinsPlugins().size()), output, StandardCharsets.UTF_8);
             }
         }
 
         if (generateTimestamp) {
-            try (final FileOutputStream output = new FileOutputStream(new File(outputDirectory, TIMESTAMP_FILENAME))) {
+            try (final OutputStream output = OutputFiles.getInstance().newOutputStream(new File(outputDirectory, TIMESTAMP_FILENAME))) {
                 IOUtils.write(Timestamp.TIMESTAMP, output, StandardCharsets.UTF_8);
             }
         }
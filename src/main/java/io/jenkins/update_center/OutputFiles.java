@@ -0,0 +1,430 @@
+package io.jenkins.update_center;
+
+import io.jenkins.update_center.util.Environment;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.kohsuke.args4j.Option;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes generated output files.
+ *
+ * <p>All generated files should be written through {@link #newOutputStream(File)}, so that options affecting output
+ * files apply consistently to all of them.</p>
+ *
+ * <p>Files are only replaced when their content changes. Unchanged files keep their modification time, so tools
+ * synchronizing the output (rsync, S3 sync) can skip them. The list of files that did change can be written to a file
+ * for consumption by such tools.</p>
+ *
+ * <p>When generating into a new, empty directory, files whose content is unchanged from the corresponding file of the
+ * previous generation are hard linked to that file instead. This retains their modification time, and the previous
+ * generation is never modified, so it can still be published while the new one is generated.</p>
+ *
+ * <p>Files with the same content, like those shared by the tiered update sites, can be hard linked to each other, so
+ * that tools preserving hard links only copy them once.</p>
+ *
+ * <p>Like {@link LatestPluginVersions}, the instance configured for the current execution is initialized by
+ * {@link Main} and globally available via {@link #getInstance()}.</p>
+ */
+public class OutputFiles {
+    private static final Logger LOGGER = Logger.getLogger(OutputFiles.class.getName());
+
+    private static final String COMPRESSED_SUFFIX = ".gz";
+    private static final int COMPRESSION_THREADS = Environment.getInteger("COMPRESSION_THREADS", Runtime.getRuntime().availableProcessors());
+
+    @Option(name = "--write-compressed", usage = "Additionally write gzip compressed copies of generated JSON and HTML files, with the file name suffix .gz")
+    public boolean writeCompressed;
+
+    @Option(name = "--changed-files-list", usage = "Append the paths of all generated files that were created or whose content changed to this file, one per line")
+    @CheckForNull public File changedFilesList;
+
+    @Option(name = "--link-identical-files", usage = "Replace generated files whose content is identical to another file generated by this process (e.g. for another tiered update site) with hard links to it")
+    public boolean linkIdenticalFiles;
+
+    @Option(name = "--output-root", usage = "Root directory of the output of this generation, see --previous-output-root")
+    @CheckForNull public File outputRoot;
+
+    @Option(name = "--previous-output-root", usage = "Root directory of the output of the previous generation. Files in --output-root whose content is unchanged from the corresponding file in this directory are hard linked to it")
+    @CheckForNull public File previousOutputRoot;
+
+    private static OutputFiles instance = new OutputFiles();
+
+    private ExecutorService compressionExecutor;
+    private final List<Future<?>> pendingCompressions = new ArrayList<>();
+    private final List<File> changedFiles = new ArrayList<>();
+    private int unchangedFiles;
+
+    /**
+     * Files generated by all executions of this process, by content digest, see {@link #linkIdenticalFiles}.
+     */
+    private final Map<String, File> filesByContent = new HashMap<>();
+    private final Map<File, String> contentByFile = new HashMap<>();
+    private int linkedFiles;
+
+    public static void initialize(@Nonnull OutputFiles outputFiles) {
+        instance = Objects.requireNonNull(outputFiles, "outputFiles");
+    }
+
+    @Nonnull
+    public static OutputFiles getInstance() {
+        return instance;
+    }
+
+    /**
+     * Opens the specified output file for writing, creating parent directories as needed.
+     *
+     * <p>Post-processing of the file (like compression) starts once the returned stream is closed.</p>
+     *
+     * @param file the output file
+     * @return the stream to write the file content to
+     * @throws IOException when the file cannot be opened
+     */
+    public OutputStream newOutputStream(@Nonnull File file) throws IOException {
+        final File parent = file.getAbsoluteFile().getParentFile();
+        if (!parent.mkdirs() && !parent.isDirectory()) {
+            throw new IOException("Failed to create " + parent);
+        }
+        final File tmp = createTemporarySibling(file);
+        final MessageDigest digest = DigestUtils.getSha256Digest();
+        return new OutputFileStream(file, tmp, new DigestOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp.toPath(), StandardOpenOption.CREATE_NEW)), digest));
+    }
+
+    /**
+     * Closes a stream from {@link #newOutputStream(File)} without replacing the output file, for when its content could
+     * not be generated completely.
+     *
+     * @param stream the stream to discard, or {@code null}
+     * @throws IOException if closing the stream or deleting the temporary file failed
+     */
+    public static void discard(@CheckForNull OutputStream stream) throws IOException {
+        if (stream instanceof OutputFileStream) {
+            ((OutputFileStream) stream).discard();
+        } else if (stream != null) {
+            stream.close();
+        }
+    }
+
+    /**
+     * Reports failures of a {@link PrintWriter} writing to a stream from {@link #newOutputStream(File)}. Call this after
+     * closing the writer, as {@link PrintWriter#close()} does not throw when replacing the output file fails.
+     *
+     * @param writer the closed writer
+     * @param file the output file
+     * @throws IOException if writing or closing failed
+     */
+    public static void checkError(@Nonnull PrintWriter writer, @Nonnull File file) throws IOException {
+        if (writer.checkError()) {
+            throw new IOException("Failed to write " + file);
+        }
+    }
+
+    /**
+     * Determine a temporary file name in the same directory as the specified file, so it can be moved into place atomically.
+     * Unlike {@link File#createTempFile(String, String, File)}, the file will be created with default permissions.
+     */
+    private static File createTemporarySibling(File file) {
+        return new File(file.getAbsoluteFile().getParentFile(), "." + file.getName() + "." + UUID.randomUUID() + ".tmp");
+    }
+
+    private void written(File file, File tmp, byte[] sha256) throws IOException {
+        boolean changed = true;
+        try {
+            if (file.isFile() && file.length() == tmp.length()) {
+                changed = !hasContent(file, sha256);
+            } else if (!file.exists()) {
+                final File previous = getPreviousGeneration(file);
+                if (previous != null && previous.isFile() && previous.length() == tmp.length() && hasContent(previous, sha256)) {
+                    linkPreviousGeneration(previous, file);
+                    changed = false;
+                }
+            }
+            if (changed) {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+
+        if (changed) {
+            LOGGER.log(Level.FINER, () -> "Wrote changed file " + file);
+        } else {
+            LOGGER.log(Level.FINEST, () -> "Content of " + file + " is unchanged");
+        }
+        recordResult(file, changed);
+
+        final File identical = linkIdenticalFiles ? recordContent(file.getAbsoluteFile(), Hex.encodeHexString(sha256)) : null;
+        boolean linkedCompressed = false;
+        if (identical != null && !Files.isSameFile(identical.toPath(), file.toPath())) {
+            ArtifactStager.link(identical.toPath(), file.toPath());
+            linkedCompressed = linkCompressed(identical, file);
+            synchronized (this) {
+                linkedFiles++;
+            }
+            LOGGER.log(Level.FINEST, () -> "Linked " + file + " to identical file " + identical);
+        }
+
+        if (writeCompressed && isCompressible(file) && !linkedCompressed) {
+            final File compressed = new File(file.getPath() + COMPRESSED_SUFFIX);
+            if (changed || !compressed.isFile() || compressed.lastModified() != file.lastModified()) {
+                scheduleCompression(file, compressed);
+            }
+        }
+    }
+
+    /**
+     * Records the content of a generated file.
+     *
+     * @return another existing generated file with the same content, or {@code null} if there is none
+     */
+    @CheckForNull
+    private synchronized File recordContent(File file, String digest) {
+        final String previousDigest = contentByFile.put(file, digest);
+        if (previousDigest != null && file.equals(filesByContent.get(previousDigest))) {
+            // The file was generated again with different content
+            filesByContent.remove(previousDigest);
+        }
+        final File existing = filesByContent.get(digest);
+        if (existing == null || existing.equals(file) || !existing.isFile()) {
+            filesByContent.put(digest, file);
+            return null;
+        }
+        return existing;
+    }
+
+    private static boolean hasContent(File file, byte[] sha256) throws IOException {
+        try (InputStream is = Files.newInputStream(file.toPath())) {
+            return MessageDigest.isEqual(sha256, DigestUtils.sha256(is));
+        }
+    }
+
+    /**
+     * Determines the file corresponding to the specified output file in the previous generation.
+     *
+     * @return the file in the previous generation, or {@code null} if not generating into a new directory
+     */
+    @CheckForNull
+    private File getPreviousGeneration(File file) {
+        if (outputRoot == null || previousOutputRoot == null) {
+            return null;
+        }
+        final Path root = outputRoot.toPath().toAbsolutePath().normalize();
+        final Path path = file.toPath().toAbsolutePath().normalize();
+        if (!path.startsWith(root)) {
+            return null;
+        }
+        return previousOutputRoot.toPath().resolve(root.relativize(path)).toFile();
+    }
+
+    private void linkPreviousGeneration(File previous, File file) throws IOException {
+        ArtifactStager.link(previous.toPath(), file.toPath());
+        LOGGER.log(Level.FINEST, () -> "Content of " + file + " is unchanged from " + previous);
+        linkCompressed(previous, file);
+    }
+
+    /**
+     * Links the compressed sibling of {@code file} to that of {@code source}, if it was created from {@code source}.
+     *
+     * @return whether the compressed file was linked
+     */
+    private boolean linkCompressed(File source, File file) throws IOException {
+        if (!writeCompressed || !isCompressible(file)) {
+            return false;
+        }
+        // Modification times are kept in sync when compressing, see #compress
+        final File sourceCompressed = new File(source.getPath() + COMPRESSED_SUFFIX);
+        if (!sourceCompressed.isFile() || sourceCompressed.lastModified() != source.lastModified()) {
+            return false;
+        }
+        ArtifactStager.link(sourceCompressed.toPath(), new File(file.getPath() + COMPRESSED_SUFFIX).toPath());
+        return true;
+    }
+
+    private synchronized void recordResult(File file, boolean changed) {
+        if (changed) {
+            changedFiles.add(file);
+        } else {
+            unchangedFiles++;
+        }
+    }
+
+    private static boolean isCompressible(File file) {
+        final String name = file.getName().toLowerCase(Locale.US);
+        return name.endsWith(".json") || name.endsWith(".html");
+    }
+
+    private synchronized void scheduleCompression(File file, File compressed) {
+        if (compressionExecutor == null) {
+            compressionExecutor = Executors.newFixedThreadPool(COMPRESSION_THREADS);
+        }
+        pendingCompressions.add(compressionExecutor.submit(() -> {
+            compress(file, compressed);
+            recordResult(compressed, true);
+            return null;
+        }));
+    }
+
+    private static void compress(File file, File compressed) throws IOException {
+        final File tmp = createTemporarySibling(compressed);
+        try {
+            try (InputStream is = Files.newInputStream(file.toPath()); OutputStream os = new MaximumCompressionGZIPOutputStream(Files.newOutputStream(tmp.toPath(), StandardOpenOption.CREATE_NEW))) {
+                is.transferTo(os);
+            }
+            // Keep modification times in sync so web servers consider the compressed file equivalent
+            if (!tmp.setLastModified(file.lastModified())) {
+                LOGGER.log(Level.FINE, () -> "Failed to set modification time of " + tmp);
+            }
+            Files.move(tmp.toPath(), compressed.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+        LOGGER.log(Level.FINE, () -> "Compressed " + file + " to " + compressed);
+    }
+
+    /**
+     * Waits for post-processing of all files written so far to complete, and writes the list of changed files if
+     * requested.
+     *
+     * @throws IOException when post-processing of any file failed
+     */
+    public void finish() throws IOException {
+        awaitCompression();
+
+        final List<File> changed;
+        final int unchanged;
+        final int linked;
+        synchronized (this) {
+            changed = new ArrayList<>(changedFiles);
+            changedFiles.clear();
+            unchanged = unchangedFiles;
+            unchangedFiles = 0;
+            linked = linkedFiles;
+            linkedFiles = 0;
+        }
+        LOGGER.log(Level.INFO, () -> "Wrote " + changed.size() + " new or changed files, kept " + unchanged + " unchanged files, linked " + linked + " files to identical files");
+
+        if (changedFilesList != null) {
+            final File parent = changedFilesList.getAbsoluteFile().getParentFile();
+            if (!parent.mkdirs() && !parent.isDirectory()) {
+                throw new IOException("Failed to create " + parent);
+            }
+            final PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(changedFilesList, true), StandardCharsets.UTF_8));
+            try (writer) {
+                for (File file : changed) {
+                    writer.println(file.getPath());
+                }
+            }
+            checkError(writer, changedFilesList);
+        }
+    }
+
+    private void awaitCompression() throws IOException {
+        final List<Future<?>> pending;
+        final ExecutorService executor;
+        synchronized (this) {
+            pending = new ArrayList<>(pendingCompressions);
+            pendingCompressions.clear();
+            executor = compressionExecutor;
+            compressionExecutor = null;
+        }
+        if (executor == null) {
+            return;
+        }
+        try {
+            for (Future<?> future : pending) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            throw new IOException("Interrupted while compressing output files", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to compress output file", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private class OutputFileStream extends FilterOutputStream {
+        private final File file;
+        private final File tmp;
+        private final DigestOutputStream digestOutputStream;
+        private boolean closed;
+
+        OutputFileStream(File file, File tmp, DigestOutputStream out) {
+            super(out);
+            this.file = file;
+            this.tmp = tmp;
+            this.digestOutputStream = out;
+        }
+
+        @Override
+        public void write(@Nonnull byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                super.close();
+            } catch (IOException e) {
+                Files.deleteIfExists(tmp.toPath());
+                throw e;
+            }
+            written(file, tmp, digestOutputStream.getMessageDigest().digest());
+        }
+
+        void discard() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                out.close();
+            } finally {
+                Files.deleteIfExists(tmp.toPath());
+            }
+        }
+    }
+
+    private static class MaximumCompressionGZIPOutputStream extends GZIPOutputStream {
+        MaximumCompressionGZIPOutputStream(OutputStream out) throws IOException {
+            super(out, 64 * 1024);
+            def.setLevel(Deflater.BEST_COMPRESSION);
+        }
+    }
+}
@@ -26,9 +26,14 @@ package io.jenkins.update_center;
 import hudson.util.VersionNumber;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -46,10 +51,34 @@ public final class Plugin {
 
     private final Set<VersionNumber> duplicateVersions = new TreeSet<>();
 
+    private final Map<List<?>, Optional<String>> scmUrls = new ConcurrentHashMap<>();
+
     public Plugin(String shortName) {
         this.artifactId = shortName;
     }
 
+    /**
+     * Returns the SCM URL of a release, only computing it for the first release with the specified inputs.
+     * The computation may look up {@link GitHubSource}, whose first use retrieves data from GitHub, so it is not run
+     * while holding a lock on the map. Concurrent callers with the same inputs may compute the same URL, and the first
+     * result is retained.
+     *
+     * @param inputs the values the SCM URL is determined from
+     * @param computation determines the SCM URL from these inputs
+     * @return the SCM URL, or {@code null} if none could be determined
+     */
+    String getScmUrl(List<?> inputs, Supplier<String> computation) {
+        Optional<String> scmUrl = scmUrls.get(inputs);
+        if (scmUrl == null) {
+            scmUrl = Optional.ofNullable(computation.get());
+            final Optional<String> existing = scmUrls.putIfAbsent(inputs, scmUrl);
+            if (existing != null) {
+                scmUrl = existing;
+            }
+        }
+        return scmUrl.orElse(null);
+    }
+
     public HPI getLatest() {
         return artifacts.get(artifacts.firstKey());
     }
@@ -6,9 +6,11 @@ import hudson.util.VersionNumber;
 import java.util.ArrayList;
 import javax.annotation.CheckForNull;
 import java.io.IOException;
-import java.net.MalformedURLException;
 import java.net.URL;
-import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
@@ -18,6 +20,8 @@ import java.util.logging.Logger;
 /**
  * An entry of a plugin in the update center metadata.
  *
+ * <p>All values are resolved when the entry is created, so instances are immutable and serialization does not perform
+ * any I/O. This allows entries to be created in parallel before the update center JSON is written.</p>
  */
 public class PluginUpdateCenterEntry {
     /**
@@ -25,40 +29,115 @@ public class PluginUpdateCenterEntry {
      */
     @JSONField(name = "name")
     public final String artifactId;
+    private final URL downloadUrl;
+    private final String name;
+    private final String version;
+    private final String previousVersion;
+    private final String scm;
+    private final List<IssueTrackerSource.IssueTracker> issueTrackers;
+    private final String requiredCore;
+    private final String compatibleSinceVersion;
+    private final String buildDate;
+    private final List<String> labels;
+    private final String defaultBranch;
+    private final List<HPI.Dependency> dependencies;
+    private final String sha1;
+    private final String sha256;
+    private final long size;
+    private final String gav;
+    private final List<MaintainersSource.Maintainer> developers;
+    private final String excerpt;
+    private final String releaseTimestamp;
+    private final String previousTimestamp;
+    private final int popularity;
+    private final Integer health;
+    private final String latest;
+
     /**
-     * Latest version of this plugin.
+     * Resolves all metadata of the offered releases up front, so that serialization does not perform any I/O.
+     *
+     * @param artifactId the plugin ID
+     * @param latestOffered latest version of this plugin
+     * @param previousOffered previous version of this plugin
+     * @throws IOException if an error occurs while accessing plugin metadata
      */
-    private transient final HPI latestOffered;
+    private PluginUpdateCenterEntry(String artifactId, HPI latestOffered, @CheckForNull HPI previousOffered) throws IOException {
+        this.artifactId = artifactId;
+        final MavenRepository.ArtifactMetadata metadata = latestOffered.getMetadata();
+        if (metadata == null) {
+            throw new IOException("No metadata for " + latestOffered.getGavId());
+        }
+        this.downloadUrl = latestOffered.getDownloadUrl();
+        this.name = latestOffered.getName();
+        this.version = latestOffered.version;
+        this.previousVersion = previousOffered == null ? null : previousOffered.version;
+        this.scm = latestOffered.getScmUrl();
+        this.issueTrackers = IssueTrackerSource.getInstance().getIssueTrackers(artifactId);
+        this.requiredCore = latestOffered.getRequiredJenkinsVersion();
+        this.compatibleSinceVersion = latestOffered.getCompatibleSinceVersion();
+        this.buildDate = latestOffered.getTimestampAsString();
+        this.developers = MaintainersSource.getInstance().getMaintainers(latestOffered.artifact);
+        this.labels = createLabels(artifactId, latestOffered.getLabels(), developers);
+        this.defaultBranch = latestOffered.getDefaultBranch();
+        this.dependencies = latestOffered.getDependencies();
+        this.sha1 = metadata.sha1;
+        this.sha256 = metadata.sha256;
+        this.size = metadata.size;
+        this.gav = latestOffered.getGavId();
+        this.excerpt = latestOffered.getDescription();
+        this.releaseTimestamp = TIMESTAMP_FORMATTER.format(Instant.ofEpochMilli(latestOffered.getTimestamp()));
+        this.previousTimestamp = previousOffered == null ? null : TIMESTAMP_FORMATTER.format(Instant.ofEpochMilli(previousOffered.getTimestamp()));
+        this.popularity = Popularities.getInstance().getPopularity(artifactId);
+        this.health = HealthScores.getInstance().getHealthScore(artifactId);
+        this.latest = createLatest(artifactId, latestOffered);
+    }
+
+    public PluginUpdateCenterEntry(Plugin plugin) throws IOException {
+        this(plugin.getArtifactId(), selectOfferedReleases(plugin));
+    }
+
     /**
-     * Previous version of this plugin.
+     * Creates the entry for the specified plugin, unless it has no valid release.
+     *
+     * @param plugin the plugin
+     * @return the entry, or {@code null} if the plugin has no valid release
+     * @throws IOException if an error occurs while accessing plugin metadata
      */
     @CheckForNull
-    private transient final HPI previousOffered;
-
-    private PluginUpdateCenterEntry(String artifactId, HPI latestOffered, HPI previousOffered) {
-        this.artifactId = artifactId;
-        this.latestOffered = latestOffered;
-        this.previousOffered = previousOffered;
+    public static PluginUpdateCenterEntry forPlugin(Plugin plugin) throws IOException {
+        final List<HPI> offered = findOfferedReleases(plugin);
+        return offered.isEmpty() ? null : new PluginUpdateCenterEntry(plugin.getArtifactId(), offered);
     }
 
-    public PluginUpdateCenterEntry(Plugin plugin) throws IOException {
-        this.artifactId = plugin.getArtifactId();
-        HPI previous = null, latest = null;
+    private PluginUpdateCenterEntry(String artifactId, List<HPI> offered) throws IOException {
+        this(artifactId, offered.get(0), offered.size() > 1 ? offered.get(1) : null);
+    }
 
-        Iterator<HPI> it = plugin.getArtifacts().values().iterator();
+    public PluginUpdateCenterEntry(HPI hpi) throws IOException {
+        this(hpi.artifact.artifactId, hpi,  null);
+    }
 
-        while (latest == null && it.hasNext()) {
-            HPI h = it.next();
-            try {
-                h.validate();
-            } catch (IOException e) {
-                LOGGER.log(Level.WARNING, "Failed to resolve "+h+". Dropping this version.",e);
-                continue;
-            }
-            latest = h;
+    /**
+     * Determines the latest and previous valid releases of the specified plugin.
+     *
+     * @param plugin the plugin
+     * @return a list containing the latest valid release, followed by the previous valid release if there is one
+     * @throws IOException if the plugin has no valid release
+     */
+    private static List<HPI> selectOfferedReleases(Plugin plugin) throws IOException {
+        final List<HPI> offered = findOfferedReleases(plugin);
+        if (offered.isEmpty()) {
+            throw new IOException("Plugin '" + plugin.getArtifactId() + "' has no valid release");
         }
+        return offered;
+    }
 
-        while (previous == null && it.hasNext()) {
+    private static List<HPI> findOfferedReleases(Plugin plugin) {
+        List<HPI> offered = new ArrayList<>(2);
+
+        Iterator<HPI> it = plugin.getArtifacts().values().iterator();
+
+        while (offered.size() < 2 && it.hasNext()) {
             HPI h = it.next();
             try {
                 h.validate();
@@ -66,19 +145,29 @@ public class PluginUpdateCenterEntry {
                 LOGGER.log(Level.WARNING, "Failed to resolve "+h+". Dropping this version.",e);
                 continue;
             }
-            previous = h;
+            offered.add(h);
         }
+        return offered;
+    }
 
-        if (latest == null) {
-            throw new IOException("Plugin '" + artifactId + "' has no valid release");
+    private static List<String> createLabels(String artifactId, List<String> hpiLabels, List<MaintainersSource.Maintainer> developers) {
+        List<String> labels = new ArrayList<>(hpiLabels);
+        if (developers.isEmpty() && !labels.contains("adopt-this-plugin")) {
+            // Plugins with no maintainers are by definition up for adoption
+            LOGGER.log(Level.INFO, () -> "Adding 'adopt-this-plugin' label to " + artifactId + " due to lack of maintainers");
+            labels.add("adopt-this-plugin");
         }
-
-        this.latestOffered = latest;
-        this.previousOffered = previous == latest ? null : previous;
+        return Collections.unmodifiableList(labels);
     }
 
-    public PluginUpdateCenterEntry(HPI hpi) {
-        this(hpi.artifact.artifactId, hpi,  null);
+    private static String createLatest(String artifactId, HPI latestOffered) {
+        final LatestPluginVersions instance = LatestPluginVersions.getInstance();
+        final VersionNumber latestPublishedVersion = instance.getLatestVersion(artifactId);
+        if (latestPublishedVersion == null || latestPublishedVersion.equals(latestOffered.getVersion())) {
+            // only include latest version information if the currently published version isn't the latest
+            return null;
+        }
+        return latestPublishedVersion.toString();
     }
 
     /**
@@ -95,117 +184,101 @@ public class PluginUpdateCenterEntry {
         return "https://plugins.jenkins.io/" + artifactId;
     }
 
-    String getPluginUrl() throws IOException {
-        return latestOffered.getPluginUrl();
-    }
-
     @JSONField(name = "url")
-    public URL getDownloadUrl() throws MalformedURLException {
-        return latestOffered.getDownloadUrl();
+    public URL getDownloadUrl() {
+        return downloadUrl;
     }
 
     @JSONField(name = "title")
-    public String getName() throws IOException {
-        return latestOffered.getName();
+    public String getName() {
+        return name;
     }
 
     public String getVersion() {
-        return latestOffered.version;
+        return version;
     }
 
     public String getPreviousVersion() {
-        return previousOffered == null? null : previousOffered.version;
+        return previousVersion;
     }
 
-    public String getScm() throws IOException {
-        return latestOffered.getScmUrl();
+    public String getScm() {
+        return scm;
     }
 
     public List<IssueTrackerSource.IssueTracker> getIssueTrackers() {
-        return IssueTrackerSource.getInstance().getIssueTrackers(artifactId);
+        return issueTrackers;
     }
 
-    public String getRequiredCore() throws IOException {
-        return latestOffered.getRequiredJenkinsVersion();
+    public String getRequiredCore() {
+        return requiredCore;
     }
 
-    public String getCompatibleSinceVersion() throws IOException {
-        return latestOffered.getCompatibleSinceVersion();
+    public String getCompatibleSinceVersion() {
+        return compatibleSinceVersion;
     }
 
-    public String getBuildDate() throws IOException {
-        return latestOffered.getTimestampAsString();
+    public String getBuildDate() {
+        return buildDate;
     }
 
-    public List<String> getLabels() throws IOException {
-        List<String> labels = new ArrayList<>(latestOffered.getLabels());
-        if (getDevelopers().isEmpty() && !labels.contains("adopt-this-plugin")) {
-            // Plugins with no maintainers are by definition up for adoption
-            LOGGER.log(Level.INFO, () -> "Adding 'adopt-this-plugin' label to " + this.artifactId + " due to lack of maintainers");
-            labels.add("adopt-this-plugin");
-        }
+    public List<String> getLabels() {
         return labels;
     }
 
-    public String getDefaultBranch() throws IOException {
-        return latestOffered.getDefaultBranch();
+    public String getDefaultBranch() {
+        return defaultBranch;
     }
 
-    public List<HPI.Dependency> getDependencies() throws IOException {
-        return latestOffered.getDependencies();
+    public List<HPI.Dependency> getDependencies() {
+        return dependencies;
     }
 
-    public String getSha1() throws IOException {
-        return latestOffered.getMetadata().sha1;
+    public String getSha1() {
+        return sha1;
     }
 
-    public String getSha256() throws IOException {
-        return latestOffered.getMetadata().sha256;
+    public String getSha256() {
+        return sha256;
     }
 
-    public long getSize() throws IOException {
-        return latestOffered.getMetadata().size;
+    public long getSize() {
+        return size;
     }
 
     public String getGav() {
-        return latestOffered.getGavId();
+        return gav;
     }
 
     public List<MaintainersSource.Maintainer> getDevelopers() {
-        return MaintainersSource.getInstance().getMaintainers(this.latestOffered.artifact);
+        return developers;
     }
 
-    public String getExcerpt() throws IOException {
-        return latestOffered.getDescription();
+    public String getExcerpt() {
+        return excerpt;
     }
 
-    public String getReleaseTimestamp() throws IOException {
-        return TIMESTAMP_FORMATTER.format(latestOffered.getTimestamp());
+    public String getReleaseTimestamp() {
+        return releaseTimestamp;
     }
 
-    public String getPreviousTimestamp() throws IOException {
-        return previousOffered == null ? null : TIMESTAMP_FORMATTER.format(previousOffered.getTimestamp());
+    public String getPreviousTimestamp() {
+        return previousTimestamp;
     }
 
-    public int getPopularity() throws IOException {
-        return Popularities.getInstance().getPopularity(artifactId);
+    public int getPopularity() {
+        return popularity;
     }
 
     public Integer getHealth() {
-        return HealthScores.getInstance().getHealthScore(artifactId);
+        return health;
     }
 
     public String getLatest() {
-        final LatestPluginVersions instance = LatestPluginVersions.getInstance();
-        final VersionNumber latestPublishedVersion = instance.getLatestVersion(artifactId);
-        if (latestPublishedVersion == null || latestPublishedVersion.equals(latestOffered.getVersion())) {
-            // only include latest version information if the currently published version isn't the latest
-            return null;
-        }
-        return latestPublishedVersion.toString();
+        return latest;
     }
 
-    private static final SimpleDateFormat TIMESTAMP_FORMATTER = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'.00Z'", Locale.US);
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'.00Z'", Locale.US).withZone(ZoneId.systemDefault());
 
     private static final Logger LOGGER = Logger.getLogger(PluginUpdateCenterEntry.class.getName());
 }
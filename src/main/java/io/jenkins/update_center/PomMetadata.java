@@ -0,0 +1,324 @@
+package io.jenkins.update_center;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.TypeReference;
+import io.jenkins.update_center.util.Environment;
+import io.jenkins.update_center.util.PersistentCache;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The values from a POM file needed for update site generation.
+ *
+ * <p>Each POM file is read only once with a streaming parser, collecting all values at the same time. The results are
+ * cached, so POMs shared by many plugins (like parent POMs) are also only read once. Parent POMs are additionally cached
+ * by their coordinates, see {@link #ofParent(MavenRepository, ArtifactCoordinates)}.</p>
+ *
+ * <p>The metadata of the most recently used POM files is kept in memory, up to {@code POM_METADATA_CACHE_SIZE} entries.
+ * If a persistent cache is configured with {@link #loadPersistentCache(File)}, metadata is also stored by the SHA-256
+ * of the POM content and written to disk with {@link #savePersistentCache()}, so later executions only need to
+ * parse new POM files.</p>
+ */
+public final class PomMetadata {
+    private static final Logger LOGGER = Logger.getLogger(PomMetadata.class.getName());
+
+    private static final String POM_NAMESPACE = "http://maven.apache.org/POM/4.0.0";
+
+    private static final String NAME = "project/name";
+    private static final String DESCRIPTION = "project/description";
+    private static final String URL = "project/url";
+    private static final String SCM_URL = "project/scm/url";
+    private static final String SCM_DEVELOPER_CONNECTION = "project/scm/developerConnection";
+    private static final String PARENT_GROUP_ID = "project/parent/groupId";
+    private static final String PARENT_ARTIFACT_ID = "project/parent/artifactId";
+    private static final String PARENT_VERSION = "project/parent/version";
+
+    private static final String[] PATHS = { NAME, DESCRIPTION, URL, SCM_URL, SCM_DEVELOPER_CONNECTION, PARENT_GROUP_ID, PARENT_ARTIFACT_ID, PARENT_VERSION };
+
+    private static final PomMetadata EMPTY = new PomMetadata(new HashMap<>());
+
+    private static final int CACHE_SIZE = Environment.getInteger("POM_METADATA_CACHE_SIZE", 20000);
+
+    /**
+     * Included in the key of each persistent cache entry, increment when changing which values are read from POMs.
+     */
+    private static final String PERSISTENT_CACHE_FORMAT_VERSION = "1";
+
+    private static final Map<Path, PomMetadata> CACHE = Collections.synchronizedMap(new LinkedHashMap<Path, PomMetadata>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, PomMetadata> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    });
+
+    private static final PersistentCache PERSISTENT_CACHE = new PersistentCache("POM metadata");
+
+    private static final Map<ArtifactCoordinates, PomMetadata> PARENT_CACHE = new ConcurrentHashMap<>();
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+
+    private final String name;
+    private final String description;
+    private final String url;
+    private final String scmUrl;
+    private final String scmDeveloperConnection;
+    private final ArtifactCoordinates parent;
+
+    private PomMetadata(Map<String, String> values) {
+        this.name = values.get(NAME);
+        this.description = values.get(DESCRIPTION);
+        this.url = values.get(URL);
+        this.scmUrl = values.get(SCM_URL);
+        this.scmDeveloperConnection = values.get(SCM_DEVELOPER_CONNECTION);
+        final String parentGroupId = values.get(PARENT_GROUP_ID);
+        final String parentArtifactId = values.get(PARENT_ARTIFACT_ID);
+        final String parentVersion = values.get(PARENT_VERSION);
+        if (parentGroupId != null && parentArtifactId != null && parentVersion != null) {
+            this.parent = new ArtifactCoordinates(parentGroupId, parentArtifactId, parentVersion, "pom");
+        } else {
+            this.parent = null;
+        }
+    }
+
+    /**
+     * Returns the metadata of the specified POM file, reading it if it is not in the cache.
+     * If the file does not exist or cannot be parsed, all values are {@code null}.
+     *
+     * @param pom the POM file
+     * @return the metadata
+     */
+    @Nonnull
+    public static PomMetadata of(@Nonnull File pom) {
+        final Path path = pom.toPath().toAbsolutePath().normalize();
+        PomMetadata metadata = CACHE.get(path);
+        if (metadata == null) {
+            // Read outside the lock; at worst, concurrent callers read the same POM twice
+            metadata = read(path);
+            CACHE.put(path, metadata);
+        }
+        return metadata;
+    }
+
+    /**
+     * Returns the metadata of the specified parent POM.
+     * Thousands of plugins share a few dozen parent POMs, so each parent is only resolved once, and all children are
+     * served from memory. If the parent POM cannot be resolved, all values are {@code null}.
+     *
+     * @param repository the repository to resolve the parent POM from
+     * @param parent the coordinates of the parent POM
+     * @return the metadata
+     */
+    @Nonnull
+    public static PomMetadata ofParent(@Nonnull MavenRepository repository, @Nonnull ArtifactCoordinates parent) {
+        return PARENT_CACHE.computeIfAbsent(parent, gav -> {
+            try {
+                return of(repository.resolve(gav));
+            } catch (IOException | RuntimeException ex) {
+                LOGGER.log(Level.WARNING, "Failed to resolve parent POM " + gav.getGav(), ex);
+                return EMPTY;
+            }
+        });
+    }
+
+    private static PomMetadata read(Path pom) {
+        final byte[] content;
+        try {
+            content = Files.readAllBytes(pom);
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Failed to read POM " + pom, e);
+            return EMPTY;
+        }
+
+        if (!PERSISTENT_CACHE.isEnabled()) {
+            return parse(pom, content);
+        }
+        final String key = DigestUtils.sha256Hex(PERSISTENT_CACHE_FORMAT_VERSION + "\n" + DigestUtils.sha256Hex(content));
+        final String cached = PERSISTENT_CACHE.get(key);
+        if (cached != null) {
+            try {
+                return new PomMetadata(JSON.parseObject(cached, new TypeReference<Map<String, String>>() {}));
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.FINE, "Failed to parse cached metadata of POM " + pom, e);
+            }
+        }
+        final PomMetadata metadata = parse(pom, content);
+        PERSISTENT_CACHE.put(key, JSON.toJSONString(metadata.toValues()));
+        return metadata;
+    }
+
+    private static PomMetadata parse(Path pom, byte[] content) {
+        try {
+            final XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(new ByteArrayInputStream(content));
+            try {
+                return new PomMetadata(readValues(reader));
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            LOGGER.log(Level.INFO, "Failed to parse POM " + pom, e);
+            return EMPTY;
+        }
+    }
+
+    /**
+     * Loads the persistent cache from the specified file, see {@link PersistentCache#load(File)}.
+     *
+     * @param file the persistent cache file
+     */
+    public static void loadPersistentCache(@Nonnull File file) {
+        if (PERSISTENT_CACHE.load(file)) {
+            // Make sure POMs read before are read again, so they are retained in the persistent cache
+            CACHE.clear();
+            PARENT_CACHE.clear();
+        }
+    }
+
+    /**
+     * Writes the metadata of all POMs read since the persistent cache was loaded back to its file.
+     *
+     * @throws IOException if writing fails
+     */
+    public static void savePersistentCache() throws IOException {
+        PERSISTENT_CACHE.save();
+    }
+
+    private Map<String, String> toValues() {
+        final Map<String, String> values = new HashMap<>();
+        values.put(NAME, name);
+        values.put(DESCRIPTION, description);
+        values.put(URL, url);
+        values.put(SCM_URL, scmUrl);
+        values.put(SCM_DEVELOPER_CONNECTION, scmDeveloperConnection);
+        if (parent != null) {
+            values.put(PARENT_GROUP_ID, parent.groupId);
+            values.put(PARENT_ARTIFACT_ID, parent.artifactId);
+            values.put(PARENT_VERSION, parent.version);
+        }
+        return values;
+    }
+
+    private static Map<String, String> readValues(XMLStreamReader reader) throws XMLStreamException {
+        final Map<String, String> values = new HashMap<>();
+        final Deque<StringBuilder> texts = new ArrayDeque<>();
+        final StringBuilder path = new StringBuilder();
+        boolean inPomNamespace = false;
+
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    if (path.length() == 0) {
+                        // Like the XPath queries this replaces, only accept elements without namespace, or all in the POM namespace
+                        inPomNamespace = POM_NAMESPACE.equals(reader.getNamespaceURI());
+                    }
+                    if (path.length() > 0) {
+                        path.append('/');
+                    }
+                    path.append(isExpectedNamespace(reader.getNamespaceURI(), inPomNamespace) ? reader.getLocalName() : "?");
+                    texts.push(new StringBuilder());
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if (!texts.isEmpty()) {
+                        texts.peek().append(reader.getText());
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    final String elementPath = path.toString();
+                    final String text = texts.pop().toString();
+                    for (String candidate : PATHS) {
+                        if (candidate.equals(elementPath)) {
+                            values.putIfAbsent(candidate, normalizeWhitespace(text));
+                        }
+                    }
+                    final int separator = path.lastIndexOf("/");
+                    path.setLength(Math.max(separator, 0));
+                    break;
+                default:
+                    break;
+            }
+        }
+        return values;
+    }
+
+    private static boolean isExpectedNamespace(String namespace, boolean inPomNamespace) {
+        return inPomNamespace ? POM_NAMESPACE.equals(namespace) : namespace == null || namespace.isEmpty();
+    }
+
+    /**
+     * Trims the text and replaces internal whitespace with a single space, like dom4j's {@code Element#getTextTrim()}.
+     */
+    private static String normalizeWhitespace(String text) {
+        final StringBuilder sb = new StringBuilder();
+        final StringTokenizer tokenizer = new StringTokenizer(text);
+        while (tokenizer.hasMoreTokens()) {
+            sb.append(tokenizer.nextToken());
+            if (tokenizer.hasMoreTokens()) {
+                sb.append(' ');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static XMLInputFactory createXmlInputFactory() {
+        final XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    @CheckForNull
+    public String getName() {
+        return name;
+    }
+
+    @CheckForNull
+    public String getDescription() {
+        return description;
+    }
+
+    @CheckForNull
+    public String getUrl() {
+        return url;
+    }
+
+    @CheckForNull
+    public String getScmUrl() {
+        return scmUrl;
+    }
+
+    @CheckForNull
+    public String getScmDeveloperConnection() {
+        return scmDeveloperConnection;
+    }
+
+    /**
+     * @return the coordinates of the parent POM, or {@code null} if there is none
+     */
+    @CheckForNull
+    public ArtifactCoordinates getParent() {
+        return parent;
+    }
+}
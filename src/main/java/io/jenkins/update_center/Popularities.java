@@ -57,6 +57,10 @@ public class Popularities {
         public Map<String, String> plugins;
     }
 
+    static synchronized void initialize(Map<String, Integer> popularities) {
+        instance = new Popularities(popularities);
+    }
+
     public static synchronized Popularities getInstance() throws IOException {
         if (instance == null) {
             initialize();
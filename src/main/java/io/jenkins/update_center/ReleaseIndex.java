@@ -0,0 +1,99 @@
+package io.jenkins.update_center;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * All releases of a set of plugins, sorted by their timestamp.
+ *
+ * <p>Each release's timestamp is looked up once when creating the index, so queries by release time do not need to
+ * look at every release of every plugin again.</p>
+ */
+public final class ReleaseIndex {
+    private final long[] timestamps;
+    private final HPI[] releases;
+
+    private ReleaseIndex(long[] timestamps, HPI[] releases) {
+        this.timestamps = timestamps;
+        this.releases = releases;
+    }
+
+    /**
+     * Creates the index of all releases of the specified plugins.
+     *
+     * @param plugins the plugins
+     * @return the index
+     * @throws IOException when looking up the timestamp of a release fails
+     */
+    public static ReleaseIndex of(@Nonnull Collection<Plugin> plugins) throws IOException {
+        final List<Release> list = new ArrayList<>();
+        for (Plugin plugin : plugins) {
+            for (HPI hpi : plugin.getArtifacts().values()) {
+                list.add(new Release(hpi.getTimestamp(), hpi));
+            }
+        }
+        list.sort(Comparator.comparingLong((Release r) -> r.timestamp).thenComparing(r -> r.hpi.artifact.getGav()));
+
+        final long[] timestamps = new long[list.size()];
+        final HPI[] releases = new HPI[list.size()];
+        for (int i = 0; i < list.size(); i++) {
+            timestamps[i] = list.get(i).timestamp;
+            releases[i] = list.get(i).hpi;
+        }
+        return new ReleaseIndex(timestamps, releases);
+    }
+
+    /**
+     * Returns all releases published at or after the specified time, oldest first.
+     *
+     * @param since the earliest release time to include
+     * @return the releases
+     */
+    public List<HPI> getReleasesSince(@Nonnull Instant since) {
+        final long sinceMillis = since.toEpochMilli();
+        int index = Arrays.binarySearch(timestamps, sinceMillis);
+        if (index < 0) {
+            index = -index - 1;
+        } else {
+            // binarySearch finds any of several equal timestamps, so find the first one
+            while (index > 0 && timestamps[index - 1] == sinceMillis) {
+                index--;
+            }
+        }
+        return Arrays.asList(releases).subList(index, releases.length);
+    }
+
+    /**
+     * Returns the releases grouped by the day they were published on.
+     * Like {@link MavenRepository#listPluginsByReleaseDate()}, only the last release of a plugin on any given day is
+     * included.
+     *
+     * @return a map from day to a map of plugin ID to release
+     */
+    public Map<Date, Map<String, HPI>> getReleasesByDate() {
+        final Map<Date, Map<String, HPI>> plugins = new TreeMap<>();
+        for (int i = 0; i < releases.length; i++) {
+            plugins.computeIfAbsent(MavenArtifact.truncateToDay(timestamps[i]), k -> new TreeMap<>()).put(releases[i].getPlugin().getArtifactId(), releases[i]);
+        }
+        return plugins;
+    }
+
+    private static class Release {
+        private final long timestamp;
+        private final HPI hpi;
+
+        Release(long timestamp, HPI hpi) {
+            this.timestamp = timestamp;
+            this.hpi = hpi;
+        }
+    }
+}
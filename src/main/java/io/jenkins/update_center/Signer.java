@@ -17,10 +17,13 @@ import org.jvnet.hudson.crypto.CertificateUtil;
 import org.jvnet.hudson.crypto.SignatureOutputStream;
 import org.kohsuke.args4j.Option;
 
+import javax.annotation.CheckForNull;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.security.DigestOutputStream;
@@ -77,11 +80,27 @@ public class Signer {
     }
 
     public JsonSignature sign(String json) throws GeneralSecurityException, IOException {
-        if (!isConfigured()) {
+        final StreamingSignature signature = startSigning();
+        if (signature == null) {
             return null;
         }
+        IOUtils.write(json, signature.getWriter());
+        return signature.finish();
+    }
 
-        JsonSignature sign = new JsonSignature();
+    /**
+     * Starts generating a signature for JSON content that is written incrementally, so that the content never needs to
+     * be held in memory in its entirety.
+     *
+     * @return the signature to write the unsigned JSON content to, or {@code null} if the signer is not configured
+     * @throws GeneralSecurityException when an issue with the key or certificates occurs
+     * @throws IOException when the key or certificates cannot be read
+     */
+    @CheckForNull
+    public StreamingSignature startSigning() throws GeneralSecurityException, IOException {
+        if (!isConfigured()) {
+            return null;
+        }
 
         List<X509Certificate> certs = getCertificateChain();
         X509Certificate signer = certs.get(0); // the first one is the signer, and the rest is the chain to a root CA.
@@ -101,20 +120,48 @@ public class Signer {
         }
 
         // the correct signature (since Jenkins 1.433); no longer generate wrong signatures for older releases.
-        SignatureGenerator sg = new SignatureGenerator(signer, key);
+        return new StreamingSignature(new SignatureGenerator(signer, key), certs);
+    }
 
-        try (OutputStreamWriter osw = new OutputStreamWriter(sg.out, StandardCharsets.UTF_8)) {
-            IOUtils.write(json, osw);
+    /**
+     * A signature in progress. Write the unsigned JSON content to {@link #getWriter()}, then call {@link #finish()}.
+     */
+    public static class StreamingSignature {
+        private final SignatureGenerator generator;
+        private final List<X509Certificate> certs;
+        private final Writer writer;
+
+        private StreamingSignature(SignatureGenerator generator, List<X509Certificate> certs) {
+            this.generator = generator;
+            this.certs = certs;
+            this.writer = new BufferedWriter(new OutputStreamWriter(generator.out, StandardCharsets.UTF_8));
         }
-        sg.fill(sign);
 
-        // and certificate chain
-        List<String> certificates = new ArrayList<>();
-        for (X509Certificate cert : certs)
-            certificates.add(new String(Base64.encodeBase64(cert.getEncoded()), StandardCharsets.UTF_8));
-        sign.setCertificates(certificates);
+        public Writer getWriter() {
+            return writer;
+        }
 
-        return sign;
+        /**
+         * Completes the signature over all content written so far.
+         *
+         * @return the signature
+         * @throws GeneralSecurityException when the signature could not be generated or failed to validate
+         * @throws IOException when any IO error occurs
+         */
+        public JsonSignature finish() throws GeneralSecurityException, IOException {
+            writer.close();
+
+            JsonSignature sign = new JsonSignature();
+            generator.fill(sign);
+
+            // and certificate chain
+            List<String> certificates = new ArrayList<>();
+            for (X509Certificate cert : certs)
+                certificates.add(new String(Base64.encodeBase64(cert.getEncoded()), StandardCharsets.UTF_8));
+            sign.setCertificates(certificates);
+
+            return sign;
+        }
     }
 
     /**
@@ -0,0 +1,123 @@
+package io.jenkins.update_center;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.parser.Feature;
+import io.jenkins.update_center.json.UpdateCenterDelta;
+import io.jenkins.update_center.util.Environment;
+import org.kohsuke.args4j.Option;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Generates signed delta documents from recent previous versions of {@code update-center.json} to the current one.
+ *
+ * <p>Previous versions are kept in a history directory, with file names based on their {@code correct_digest512}.
+ * For each of them, a delta is written to {@code update-center-deltas/<digest>.json} in the output directory.
+ * Clients that already have a previous version can download the much smaller delta instead of the full update site.</p>
+ *
+ * @see UpdateCenterDelta
+ */
+public class UpdateCenterDeltaWriter {
+    private static final Logger LOGGER = Logger.getLogger(UpdateCenterDeltaWriter.class.getName());
+
+    private static final String DELTAS_DIRECTORY_NAME = "update-center-deltas";
+    private static final String SNAPSHOT_SUFFIX = ".json";
+    private static final int HISTORY_SIZE = Environment.getInteger("UPDATE_CENTER_DELTA_HISTORY_SIZE", 24);
+
+    @Option(name = "--update-center-history-directory", usage = "Keep previous versions of update-center.json in this directory, and generate signed deltas from them to the current version in the update-center-deltas/ output directory")
+    @CheckForNull public File historyDirectory;
+
+    /**
+     * Writes deltas from the previous versions of the update site to the current one, and records the current one in
+     * the history directory.
+     *
+     * @param signedUpdateCenterJson the current update site JSON, including its signature
+     * @param outputDirectory the output directory
+     * @param signer the signer
+     * @param pretty whether to pretty-print format the JSON output
+     * @throws IOException when any IO error occurs
+     * @throws GeneralSecurityException when an issue during signing occurs
+     */
+    public void writeDeltas(@Nonnull String signedUpdateCenterJson, @CheckForNull File outputDirectory, @Nonnull Signer signer, boolean pretty) throws IOException, GeneralSecurityException {
+        if (historyDirectory == null) {
+            LOGGER.log(Level.INFO, "Skipping generation of update center deltas");
+            return;
+        }
+
+        if (outputDirectory == null) {
+            throw new IOException("No output directory specified but generation of update center deltas requested");
+        }
+
+        final JSONObject current = JSON.parseObject(signedUpdateCenterJson, Feature.OrderedField);
+        final String currentDigest = UpdateCenterDelta.getDigest(current);
+        if (currentDigest == null) {
+            LOGGER.log(Level.WARNING, "Cannot generate update center deltas for unsigned update sites");
+            return;
+        }
+
+        if (!historyDirectory.isDirectory() && !historyDirectory.mkdirs()) {
+            throw new IOException("Failed to create " + historyDirectory);
+        }
+
+        final List<File> snapshots = listSnapshots(currentDigest);
+        final List<File> retained = snapshots.subList(0, Math.max(0, Math.min(snapshots.size(), HISTORY_SIZE - 1)));
+
+        final File deltasDirectory = new File(outputDirectory, DELTAS_DIRECTORY_NAME);
+        final Set<String> deltaFileNames = new HashSet<>();
+        for (File snapshot : retained) {
+            final JSONObject previous = JSON.parseObject(new String(Files.readAllBytes(snapshot.toPath()), StandardCharsets.UTF_8), Feature.OrderedField);
+            final UpdateCenterDelta delta = new UpdateCenterDelta(previous, current);
+            delta.writeWithSignature(new File(deltasDirectory, snapshot.getName()), signer, pretty);
+            deltaFileNames.add(snapshot.getName());
+        }
+        LOGGER.log(Level.INFO, () -> "Wrote " + retained.size() + " update center deltas to " + deltasDirectory);
+
+        // Deltas from versions no longer in the history would otherwise be served forever
+        final File[] deltaFiles = deltasDirectory.listFiles((dir, name) -> name.endsWith(SNAPSHOT_SUFFIX) && !deltaFileNames.contains(name));
+        for (File deltaFile : deltaFiles == null ? new File[0] : deltaFiles) {
+            LOGGER.log(Level.FINE, () -> "Deleting outdated update center delta " + deltaFile);
+            Files.deleteIfExists(deltaFile.toPath());
+        }
+        for (File snapshot : snapshots.subList(retained.size(), snapshots.size())) {
+            LOGGER.log(Level.FINE, () -> "Deleting outdated update center snapshot " + snapshot);
+            Files.deleteIfExists(snapshot.toPath());
+        }
+
+        writeSnapshot(currentDigest, signedUpdateCenterJson);
+    }
+
+    /**
+     * Lists the previous versions of the update site in the history directory, most recent first.
+     */
+    private List<File> listSnapshots(String currentDigest) {
+        final String currentFileName = currentDigest + SNAPSHOT_SUFFIX;
+        final File[] files = Objects.requireNonNull(historyDirectory).listFiles((dir, name) -> name.endsWith(SNAPSHOT_SUFFIX) && !name.equals(currentFileName));
+        final List<File> snapshots = new ArrayList<>(files == null ? List.of() : Arrays.asList(files));
+        snapshots.sort(Comparator.comparingLong(File::lastModified).reversed().thenComparing(File::getName));
+        return snapshots;
+    }
+
+    private void writeSnapshot(String digest, String json) throws IOException {
+        final File snapshot = new File(historyDirectory, digest + SNAPSHOT_SUFFIX);
+        final File tmp = new File(historyDirectory, "." + snapshot.getName() + ".tmp");
+        Files.write(tmp.toPath(), json.getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,36 @@
+package io.jenkins.update_center.json;
+
+import com.alibaba.fastjson.annotation.JSONField;
+
+import javax.annotation.CheckForNull;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+
+/**
+ * A release listed in {@code index.json} of a download directory.
+ * Unlike {@link PluginVersionsEntry}, checksums are hex-encoded, as on the corresponding {@code index.html}.
+ */
+public class DownloadIndexEntry {
+    @JSONField
+    public final String version;
+    @JSONField
+    public final String url;
+    @JSONField
+    public final String releaseTimestamp;
+    @JSONField
+    public final String sha1;
+    @JSONField
+    public final String sha256;
+    @JSONField
+    public final String requiredCore;
+
+    public DownloadIndexEntry(String version, String url, @CheckForNull Date releaseDate, String sha1,
+                              @CheckForNull String sha256, @CheckForNull String requiredCore) {
+        this.version = version;
+        this.url = url;
+        this.releaseTimestamp = releaseDate == null ? null : DateTimeFormatter.ISO_INSTANT.format(releaseDate.toInstant());
+        this.sha1 = sha1;
+        this.sha256 = sha256;
+        this.requiredCore = requiredCore;
+    }
+}
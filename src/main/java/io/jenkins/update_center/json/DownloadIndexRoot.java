@@ -0,0 +1,21 @@
+package io.jenkins.update_center.json;
+
+import com.alibaba.fastjson.annotation.JSONField;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code index.json} file of a download directory, listing the same releases as its {@code index.html}, newest first.
+ */
+public class DownloadIndexRoot {
+    @JSONField
+    public final String title;
+
+    @JSONField
+    public final List<DownloadIndexEntry> releases = new ArrayList<>();
+
+    public DownloadIndexRoot(String title) {
+        this.title = title;
+    }
+}
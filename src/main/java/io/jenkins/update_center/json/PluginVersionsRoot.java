@@ -1,32 +1,101 @@
 package io.jenkins.update_center.json;
 
-import com.alibaba.fastjson.annotation.JSONField;
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.serializer.SerializerFeature;
 import io.jenkins.update_center.MavenRepository;
+import io.jenkins.update_center.OutputFiles;
 import io.jenkins.update_center.Plugin;
+import io.jenkins.update_center.Signer;
+import io.jenkins.update_center.util.Timestamp;
 
+import java.io.BufferedWriter;
+import java.io.File;
 import java.io.IOException;
-import java.util.Map;
-import java.util.TreeMap;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Comparator;
+import java.util.List;
 import java.util.stream.Collectors;
 
-public class PluginVersionsRoot extends WithSignature {
-    @JSONField
+/**
+ * Generates {@code plugin-versions.json}, listing all releases of all plugins.
+ *
+ * <p>Unlike other JSON files with signatures, this is not a {@link WithSignature}: The full content would be by far the
+ * largest object graph built during generation, so it is streamed instead. Plugins are processed one at a time, and
+ * each plugin's releases are written to the output file and the signature digest streams at the same time, so only
+ * one plugin's {@link PluginVersions} needs to be kept in memory. The output is identical to what {@link WithSignature}
+ * would produce for an object with the properties {@code generationTimestamp}, {@code plugins}, {@code signature}, and
+ * {@code updateCenterVersion}.</p>
+ */
+public class PluginVersionsRoot {
+    private static final SerializerFeature[] FEATURES = { SerializerFeature.DisableCircularReferenceDetect };
+    private static final SerializerFeature[] PRETTY_FEATURES = { SerializerFeature.DisableCircularReferenceDetect, SerializerFeature.PrettyFormat };
+
     public final String updateCenterVersion;
     private final MavenRepository repository;
 
-    private Map<String, PluginVersions> plugins;
-
     public PluginVersionsRoot(String updateCenterVersion, MavenRepository repository) {
         this.updateCenterVersion = updateCenterVersion;
         this.repository = repository;
     }
 
-    @JSONField
-    public Map<String, PluginVersions> getPlugins() throws IOException {
-        if (plugins == null) {
-            plugins = new TreeMap<>(repository.listJenkinsPlugins().stream().collect(Collectors.toMap(Plugin::getArtifactId, plugin -> new PluginVersions(plugin.getArtifacts()))));
+    /**
+     * Writes the plugin versions JSON file including its signature block.
+     *
+     * @param outputFile the file to write to
+     * @param signer the signer
+     * @param pretty whether to pretty-print format the JSON output
+     * @throws IOException when any IO error occurs
+     * @throws GeneralSecurityException when an issue during signing occurs
+     */
+    public void writeWithSignature(File outputFile, Signer signer, boolean pretty) throws IOException, GeneralSecurityException {
+        final List<Plugin> plugins = repository.listJenkinsPlugins().stream()
+                .sorted(Comparator.comparing(Plugin::getArtifactId))
+                .collect(Collectors.toList());
+
+        final Signer.StreamingSignature signature = signer.startSigning();
+        try (Writer output = new BufferedWriter(new OutputStreamWriter(OutputFiles.getInstance().newOutputStream(outputFile), StandardCharsets.UTF_8))) {
+            final Writer unsigned = signature == null ? Writer.nullWriter() : signature.getWriter();
+            final String indent = pretty ? "\n\t" : "";
+
+            final String timestamp = property("generationTimestamp") + JSON.toJSONString(Timestamp.TIMESTAMP);
+            unsigned.write("{" + timestamp + "," + property("plugins") + "{");
+            output.write("{" + indent + timestamp + "," + indent + property("plugins") + "{");
+
+            boolean first = true;
+            for (Plugin plugin : plugins) {
+                final PluginVersions versions = new PluginVersions(plugin.getArtifacts());
+                if (versions.releases.isEmpty()) {
+                    continue;
+                }
+                final String separator = first ? "" : ",";
+                first = false;
+
+                final String key = property(plugin.getArtifactId());
+                final String json = JSON.toJSONString(versions, FEATURES);
+                unsigned.write(separator + key + json);
+                if (pretty) {
+                    output.write(separator + "\n\t\t" + key + JSON.toJSONString(versions, PRETTY_FEATURES).replace("\n", "\n\t\t"));
+                } else {
+                    output.write(separator + key + json);
+                }
+            }
+
+            final String version = property("updateCenterVersion") + JSON.toJSONString(updateCenterVersion);
+            unsigned.write("}," + version + "}");
+            output.write((pretty && !first ? "\n\t" : "") + "},");
+            if (signature != null) {
+                final JsonSignature jsonSignature = signature.finish();
+                final String json = pretty ? JSON.toJSONString(jsonSignature, PRETTY_FEATURES).replace("\n", "\n\t") : JSON.toJSONString(jsonSignature, FEATURES);
+                output.write(indent + property("signature") + json + ",");
+            }
+            output.write(indent + version + (pretty ? "\n" : "") + "}");
         }
-        plugins.entrySet().removeIf(e -> e.getValue().releases.isEmpty());
-        return plugins;
+    }
+
+    private static String property(String name) {
+        return JSON.toJSONString(name) + ":";
     }
 }
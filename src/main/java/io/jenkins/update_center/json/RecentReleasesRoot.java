@@ -3,7 +3,7 @@ package io.jenkins.update_center.json;
 import com.alibaba.fastjson.annotation.JSONField;
 import io.jenkins.update_center.HPI;
 import io.jenkins.update_center.MavenRepository;
-import io.jenkins.update_center.Plugin;
+import io.jenkins.update_center.ReleaseIndex;
 import io.jenkins.update_center.util.Environment;
 
 import java.io.IOException;
@@ -17,14 +17,9 @@ public class RecentReleasesRoot extends WithoutSignature {
     public List<RecentReleasesEntry> releases = new ArrayList<>();
 
     public RecentReleasesRoot(MavenRepository repository) throws IOException {
-        for (Plugin plugin : repository.listJenkinsPlugins()) {
-            for (HPI release : plugin.getArtifacts().values()) {
-                if (Instant.ofEpochMilli(release.getTimestamp()).isBefore(Instant.now().minus(MAX_AGE))) {
-                    // too old, ignore
-                    continue;
-                }
-                releases.add(new RecentReleasesEntry(release));
-            }
+        final Instant since = Instant.now().minus(MAX_AGE);
+        for (HPI release : ReleaseIndex.of(repository.listJenkinsPlugins()).getReleasesSince(since)) {
+            releases.add(new RecentReleasesEntry(release));
         }
     }
 
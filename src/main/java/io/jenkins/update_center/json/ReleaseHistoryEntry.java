@@ -5,6 +5,7 @@ import io.jenkins.update_center.HPI;
 
 import java.io.IOException;
 import java.util.Calendar;
+import java.util.Date;
 import java.util.GregorianCalendar;
 
 class ReleaseHistoryEntry {
@@ -31,6 +32,15 @@ class ReleaseHistoryEntry {
         DATE_CUTOFF.add(Calendar.DAY_OF_MONTH, -31);
     }
 
+    /**
+     * Releases before this date are listed without title and documentation URL.
+     *
+     * @return the cutoff date
+     */
+    static Date getDateCutoff() {
+        return DATE_CUTOFF.getTime();
+    }
+
     ReleaseHistoryEntry(HPI hpi) throws IOException {
         if (hpi.getTimestampAsDate().after(DATE_CUTOFF.getTime())) {
             title = hpi.getName();
@@ -1,25 +1,129 @@
 package io.jenkins.update_center.json;
 
-import com.alibaba.fastjson.annotation.JSONField;
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.serializer.SerializerFeature;
 import io.jenkins.update_center.HPI;
 import io.jenkins.update_center.MavenRepository;
+import io.jenkins.update_center.OutputFiles;
+import io.jenkins.update_center.util.PersistentCache;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 
+import javax.annotation.CheckForNull;
+import java.io.BufferedWriter;
+import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.Date;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
-public class ReleaseHistoryRoot extends WithoutSignature {
-    @JSONField
-    public final List<ReleaseHistoryDate> releaseHistory;
+/**
+ * Generates {@code release-history.json}, listing plugin releases by day.
+ *
+ * <p>Days before the cutoff of {@link ReleaseHistoryEntry} rarely change. If a segment cache file is specified, the
+ * serialized JSON of those days is stored there, and reused verbatim in later executions as long as the releases on
+ * that day, their timestamps, and their latest/first release flags are unchanged. Only the remaining days are
+ * generated from scratch.</p>
+ */
+public class ReleaseHistoryRoot {
+    private static final Logger LOGGER = Logger.getLogger(ReleaseHistoryRoot.class.getName());
+
+    private static final SerializerFeature[] FEATURES = { SerializerFeature.DisableCircularReferenceDetect };
+    private static final SerializerFeature[] PRETTY_FEATURES = { SerializerFeature.DisableCircularReferenceDetect, SerializerFeature.PrettyFormat };
+
+    /**
+     * Included in the key of each cached segment, increment when changing the JSON format of {@link ReleaseHistoryDate}.
+     */
+    private static final String SEGMENT_FORMAT_VERSION = "1";
+
+    private final Map<Date, Map<String, HPI>> releasesByDate;
+
+    @CheckForNull
+    private final File segmentCache;
 
     public ReleaseHistoryRoot(MavenRepository repository) throws IOException {
-        List<ReleaseHistoryDate> list = new ArrayList<>();
-        for (Map.Entry<Date, Map<String, HPI>> entry : repository.listPluginsByReleaseDate().entrySet()) {
-            ReleaseHistoryDate releaseHistoryDate = new ReleaseHistoryDate(entry.getKey(), entry.getValue());
-            list.add(releaseHistoryDate);
+        this(repository, null);
+    }
+
+    /**
+     * @param repository the repository
+     * @param segmentCache the file to store serialized segments of the release history in, or {@code null} to always
+     *                     generate the entire release history
+     * @throws IOException when listing releases fails
+     */
+    public ReleaseHistoryRoot(MavenRepository repository, @CheckForNull File segmentCache) throws IOException {
+        this.releasesByDate = repository.listPluginsByReleaseDate();
+        this.segmentCache = segmentCache;
+    }
+
+    public void write(File file, boolean pretty) throws IOException {
+        // Cached segments are in compact format, so only use them for compact output
+        final boolean useCache = segmentCache != null && !pretty;
+        final PersistentCache cache = new PersistentCache("release history segment");
+        if (useCache) {
+            cache.load(segmentCache);
+        }
+        final long settledBefore = ReleaseHistoryEntry.getDateCutoff().getTime() - TimeUnit.HOURS.toMillis(25);
+        int settled = 0;
+        int reused = 0;
+
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(OutputFiles.getInstance().newOutputStream(file), StandardCharsets.UTF_8))) {
+            writer.write(pretty ? "{\n\t\"releaseHistory\":[" : "{\"releaseHistory\":[");
+            boolean first = true;
+            for (Map.Entry<Date, Map<String, HPI>> entry : releasesByDate.entrySet()) {
+                writer.write(first ? "" : ",");
+                first = false;
+
+                if (pretty) {
+                    writer.write("\n\t\t" + JSON.toJSONString(new ReleaseHistoryDate(entry.getKey(), entry.getValue()), PRETTY_FEATURES).replace("\n", "\n\t\t"));
+                    continue;
+                }
+
+                if (!useCache || entry.getKey().getTime() >= settledBefore) {
+                    writer.write(JSON.toJSONString(new ReleaseHistoryDate(entry.getKey(), entry.getValue()), FEATURES));
+                    continue;
+                }
+
+                // Compact JSON never contains literal tabs or line breaks, so it can be stored in the cache as is
+                final String key = computeSegmentKey(entry.getKey(), entry.getValue());
+                String json = cache.get(key);
+                if (json != null) {
+                    reused++;
+                } else {
+                    json = JSON.toJSONString(new ReleaseHistoryDate(entry.getKey(), entry.getValue()), FEATURES);
+                    cache.put(key, json);
+                }
+                settled++;
+                writer.write(json);
+            }
+            writer.write(pretty ? (first ? "]\n}" : "\n\t]\n}") : "]}");
+        }
+
+        if (useCache) {
+            final int total = settled;
+            final int reusedSegments = reused;
+            LOGGER.log(Level.INFO, () -> "Reused " + reusedSegments + " of " + total + " cached release history segments");
+            cache.save();
+        }
+    }
+
+    /**
+     * Computes a key that changes whenever the serialized JSON for the releases on a day outside the cutoff of
+     * {@link ReleaseHistoryEntry} changes.
+     */
+    private static String computeSegmentKey(Date date, Map<String, HPI> releases) throws IOException {
+        final MessageDigest digest = DigestUtils.getSha256Digest();
+        DigestUtils.updateDigest(digest, SEGMENT_FORMAT_VERSION + "\n" + date.getTime() + "\n");
+        for (HPI hpi : releases.values()) {
+            DigestUtils.updateDigest(digest, hpi.artifact.getGav() + " " + hpi.getTimestamp() + " "
+                    + (hpi.getPlugin().getLatest() == hpi) + " " + (hpi.getPlugin().getFirst() == hpi) + "\n");
         }
-        this.releaseHistory = list;
+        return Hex.encodeHexString(digest.digest());
     }
 }
@@ -0,0 +1,252 @@
+package io.jenkins.update_center.json;
+
+import com.alibaba.fastjson.annotation.JSONField;
+import hudson.util.VersionNumber;
+import io.jenkins.update_center.OutputFiles;
+
+import javax.annotation.CheckForNull;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Routes requests from Jenkins versions to the tiered update sites determined by {@link TieredUpdateSitesGenerator}.
+ *
+ * <p>Rather than checking every tier in turn, the tier for a Jenkins version is looked up in {@link #routes}:</p>
+ * <ul>
+ *     <li>Weekly versions {@code X.Y} use the key {@code X.Y}.</li>
+ *     <li>Stable (LTS) versions {@code X.Y.Z} use the key {@code X.Y.Z} if present, otherwise {@code X.Y.x}.</li>
+ * </ul>
+ * <p>Versions of a kind whose {@code X.Y} is newer than {@link Fallback#newerThan} use {@link Fallback#newest}, other
+ * versions not found in the table use {@link Fallback#oldest}. This is equivalent to the rule chains of
+ * {@code generate-htaccess.sh}.</p>
+ *
+ * <p>The table is written as a JSON file for non-Apache frontends, and as an Apache RewriteMap with a few rules
+ * looking up versions in it.</p>
+ */
+public class TierRouting extends WithoutSignature {
+    /**
+     * The name of the RewriteMap referenced by the rules, to be declared in the web server configuration.
+     */
+    public static final String REWRITE_MAP_NAME = "tiers";
+
+    public static final String REWRITE_MAP_FILENAME = "tiers-rewrite-map.txt";
+    public static final String REWRITE_RULES_FILENAME = "tiers.htaccess";
+    public static final String ROUTING_TABLE_FILENAME = "tiers-routing.json";
+
+    /**
+     * Number of minor versions beyond the newest tier that are included in the table, so routing does not depend on
+     * how often the table is regenerated.
+     */
+    private static final int MINOR_HEADROOM = 100;
+
+    private static final String UPDATE_CENTER_RULE = "RewriteRule ^(update\\-center.*\\.(json|html)+) /%s%%{REQUEST_URI}? [NC,L,R]";
+    private static final String STABLE_CONDITION = "RewriteCond %{QUERY_STRING} ^.*version=(\\d)\\.(\\d+)\\.(\\d+)(|[-].*)$ [NC]";
+    private static final String WEEKLY_CONDITION = "RewriteCond %{QUERY_STRING} ^.*version=(\\d)\\.(\\d+)(|[-].*)$ [NC]";
+
+    public static class Fallback {
+        /**
+         * Site for versions newer than the table.
+         */
+        @JSONField
+        public String newest;
+
+        /**
+         * Site for older versions not in the table.
+         */
+        @JSONField
+        public String oldest;
+
+        /**
+         * The newest {@code X.Y} in the table.
+         */
+        @JSONField
+        public String newerThan;
+
+        private int major;
+        private int minor;
+    }
+
+    @JSONField
+    public Map<String, String> routes = new LinkedHashMap<>();
+
+    @JSONField
+    @CheckForNull
+    public Fallback weekly;
+
+    @JSONField
+    @CheckForNull
+    public Fallback stable;
+
+    /**
+     * @param weeklyCores the weekly tier versions, as in {@link TieredUpdateSitesGenerator#weeklyCores}
+     * @param stableCores the stable tier versions, as in {@link TieredUpdateSitesGenerator#stableCores}
+     */
+    public TierRouting(List<String> weeklyCores, List<String> stableCores) {
+        final List<VersionNumber> weeklyTiers = weeklyCores.stream().map(VersionNumber::new).sorted().collect(Collectors.toList());
+        final List<VersionNumber> stableTiers = stableCores.stream().map(VersionNumber::new).sorted().collect(Collectors.toList());
+        if (!weeklyTiers.isEmpty()) {
+            weekly = fallback(weeklyTiers, v -> "dynamic-" + v);
+            addWeeklyRoutes(weeklyTiers);
+        }
+        if (!stableTiers.isEmpty()) {
+            stable = fallback(stableTiers, v -> "dynamic-stable-" + v);
+            addStableRoutes(stableTiers);
+        }
+    }
+
+    private static Fallback fallback(List<VersionNumber> tiers, Function<VersionNumber, String> site) {
+        final Fallback fallback = new Fallback();
+        final VersionNumber newestTier = tiers.get(tiers.size() - 1);
+        fallback.newest = site.apply(newestTier);
+        fallback.oldest = site.apply(tiers.get(0));
+        fallback.major = newestTier.getDigitAt(0);
+        fallback.minor = newestTier.getDigitAt(1) + MINOR_HEADROOM;
+        fallback.newerThan = fallback.major + "." + fallback.minor;
+        return fallback;
+    }
+
+    /**
+     * Compares {@code X.Y.Z} versions, with {@code -1} for missing or any components.
+     */
+    private static int compare(int major, int minor, int patch, VersionNumber tier) {
+        int result = Integer.compare(major, tier.getDigitAt(0));
+        if (result == 0) {
+            result = Integer.compare(minor, tier.getDigitAt(1));
+        }
+        if (result == 0) {
+            result = patch == -1 ? 1 : Integer.compare(patch, tier.getDigitAt(2));
+        }
+        return result;
+    }
+
+    /**
+     * @return the newest tier not newer than the specified version, or {@code null} if there is none
+     */
+    @CheckForNull
+    private static VersionNumber findTier(List<VersionNumber> tiers, int major, int minor, int patch) {
+        VersionNumber found = null;
+        for (VersionNumber tier : tiers) {
+            if (compare(major, minor, patch, tier) >= 0) {
+                found = tier;
+            }
+        }
+        return found;
+    }
+
+    private void addWeeklyRoutes(List<VersionNumber> tiers) {
+        final VersionNumber oldestTier = tiers.get(0);
+        for (int major = oldestTier.getDigitAt(0); major <= weekly.major; major++) {
+            final int firstMinor = major == oldestTier.getDigitAt(0) ? oldestTier.getDigitAt(1) : 0;
+            final int lastMinor = lastMinor(tiers, major);
+            for (int minor = firstMinor; minor <= lastMinor; minor++) {
+                final VersionNumber tier = findTier(tiers, major, minor, -1);
+                if (tier != null) {
+                    routes.put(major + "." + minor, "dynamic-" + tier);
+                }
+            }
+        }
+    }
+
+    private void addStableRoutes(List<VersionNumber> tiers) {
+        final VersionNumber oldestTier = tiers.get(0);
+        for (int major = oldestTier.getDigitAt(0); major <= stable.major; major++) {
+            final int firstMinor = major == oldestTier.getDigitAt(0) ? oldestTier.getDigitAt(1) : 0;
+            final int lastMinor = lastMinor(tiers, major);
+            for (int minor = firstMinor; minor <= lastMinor; minor++) {
+                // Within the baseline of a tier, earlier patch releases belong to the previous tier
+                int maxTierPatch = -1;
+                for (VersionNumber tier : tiers) {
+                    if (tier.getDigitAt(0) == major && tier.getDigitAt(1) == minor) {
+                        maxTierPatch = Math.max(maxTierPatch, tier.getDigitAt(2));
+                    }
+                }
+                for (int patch = 0; patch < maxTierPatch; patch++) {
+                    final VersionNumber tier = findTier(tiers, major, minor, patch);
+                    // Older than all tiers, but the lookup by baseline below would find a tier
+                    routes.put(major + "." + minor + "." + patch, "dynamic-stable-" + (tier == null ? oldestTier : tier));
+                }
+                final VersionNumber tier = findTier(tiers, major, minor, -1);
+                if (tier != null) {
+                    routes.put(major + "." + minor + ".x", "dynamic-stable-" + tier);
+                }
+            }
+        }
+    }
+
+    private static int lastMinor(List<VersionNumber> tiers, int major) {
+        return tiers.stream().filter(v -> v.getDigitAt(0) == major).mapToInt(v -> v.getDigitAt(1)).max().orElse(-1) + MINOR_HEADROOM;
+    }
+
+    /**
+     * Writes the routing table as JSON, the RewriteMap, and the rewrite rules using it to the specified directory.
+     *
+     * @param dir the output directory
+     * @param pretty whether to pretty-print the JSON
+     * @throws IOException if writing fails
+     */
+    public void writeTo(File dir, boolean pretty) throws IOException {
+        write(new File(dir, ROUTING_TABLE_FILENAME), pretty);
+
+        final File mapFile = new File(dir, REWRITE_MAP_FILENAME);
+        final PrintWriter map = open(mapFile);
+        try (map) {
+            map.println("# GENERATED. DO NOT MODIFY.");
+            for (Map.Entry<String, String> route : routes.entrySet()) {
+                map.println(route.getKey() + " " + route.getValue());
+            }
+        }
+        OutputFiles.checkError(map, mapFile);
+
+        final File rulesFile = new File(dir, REWRITE_RULES_FILENAME);
+        final PrintWriter writer = open(rulesFile);
+        try (writer) {
+            writer.println("# Version-specific rules generated by TierRouting, looking up the site in RewriteMap '" + REWRITE_MAP_NAME + "'");
+            if (stable != null) {
+                writer.println();
+                writer.println("# Stable (LTS) versions, by exact version first, then by baseline");
+                writeLookupRule(writer, STABLE_CONDITION, "%1.%2.%3");
+                writeLookupRule(writer, STABLE_CONDITION, "%1.%2.x");
+                writeFallbackRules(writer, STABLE_CONDITION, stable);
+            }
+            if (weekly != null) {
+                writer.println();
+                writer.println("# Weekly versions");
+                writeLookupRule(writer, WEEKLY_CONDITION, "%1.%2");
+                writeFallbackRules(writer, WEEKLY_CONDITION, weekly);
+            }
+        }
+        OutputFiles.checkError(writer, rulesFile);
+    }
+
+    private static void writeLookupRule(PrintWriter writer, String condition, String key) {
+        writer.println(condition);
+        writer.println("RewriteCond ${" + REWRITE_MAP_NAME + ":" + key + "|-} ^(dynamic-.+)$");
+        writer.println(String.format(UPDATE_CENTER_RULE, "%1"));
+    }
+
+    private static void writeFallbackRules(PrintWriter writer, String condition, Fallback fallback) {
+        writer.println("# Newer than " + fallback.newerThan + ", use the newest site");
+        writer.println(condition);
+        writer.println("RewriteCond %1 -gt " + fallback.major);
+        writer.println(String.format(UPDATE_CENTER_RULE, fallback.newest));
+        writer.println(condition);
+        writer.println("RewriteCond %1 -eq " + fallback.major);
+        writer.println("RewriteCond %2 -gt " + fallback.minor);
+        writer.println(String.format(UPDATE_CENTER_RULE, fallback.newest));
+        writer.println("# Otherwise, use the oldest site");
+        writer.println(condition);
+        writer.println(String.format(UPDATE_CENTER_RULE, fallback.oldest));
+    }
+
+    private static PrintWriter open(File file) throws IOException {
+        return new PrintWriter(new OutputStreamWriter(OutputFiles.getInstance().newOutputStream(file), StandardCharsets.UTF_8));
+    }
+}
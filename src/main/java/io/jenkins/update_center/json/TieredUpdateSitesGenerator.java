@@ -42,6 +42,7 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 public class TieredUpdateSitesGenerator extends WithoutSignature {
@@ -65,7 +66,7 @@ public class TieredUpdateSitesGenerator extends WithoutSignature {
     }
 
     private static VersionNumber nextWeeklyReleaseAfterStableBaseline(VersionNumber version) {
-        if (!version.toString().matches("[0-9][.][0-9]+[.][1-9]")) {
+        if (!STABLE_VERSION.matcher(version.toString()).matches()) {
             throw new IllegalArgumentException("Unexpected LTS version: " + version.toString());
         }
         return new VersionNumber(version.getDigitAt(0) + "." + (version.getDigitAt(1) + 1));
@@ -152,4 +153,6 @@ public class TieredUpdateSitesGenerator extends WithoutSignature {
     public static final Logger LOGGER = Logger.getLogger(TieredUpdateSitesGenerator.class.getName());
 
     private static final int CORE_AGE_DAYS = 400;
+
+    private static final Pattern STABLE_VERSION = Pattern.compile("[0-9][.][0-9]+[.][1-9]");
 }
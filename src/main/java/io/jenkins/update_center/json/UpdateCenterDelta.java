@@ -0,0 +1,144 @@
+package io.jenkins.update_center.json;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.annotation.JSONField;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Describes the changes between a previous and the current version of an update site's {@code update-center.json}.
+ *
+ * <p>Clients holding the previous version (identified by its {@code correct_digest512}) can reconstruct the current
+ * version by applying this delta: Replace or add the plugins and deprecations listed here, remove those listed as
+ * removed, and keep both sorted by key. Replace {@code generationTimestamp}, {@code core}, {@code connectionCheckUrl},
+ * and {@code warnings} if present. The signature of the resulting document is provided as {@code targetSignature}, so
+ * the reconstructed document can be verified like a fully downloaded one.</p>
+ *
+ * <p>The order of warnings is significant for the signature, so the complete list is included whenever it changes.</p>
+ */
+public class UpdateCenterDelta extends WithSignature {
+    @JSONField
+    @SuppressFBWarnings(value = "SS_SHOULD_BE_STATIC", justification = "Accessed by JSON serializer")
+    public final String updateCenterVersion = "1";
+
+    @JSONField
+    public final String id;
+
+    /**
+     * The {@code correct_digest512} of the update site this delta applies to.
+     */
+    @JSONField
+    public final String from;
+
+    /**
+     * The {@code correct_digest512} of the update site this delta results in.
+     */
+    @JSONField
+    public final String to;
+
+    @JSONField
+    public final JSONObject targetSignature;
+
+    /**
+     * The {@code generationTimestamp} of the update site this delta applies to.
+     */
+    @JSONField
+    public final String baseGenerationTimestamp;
+
+    private final String generationTimestamp;
+
+    @JSONField
+    public final String connectionCheckUrl;
+
+    @JSONField
+    public final JSONObject core;
+
+    @JSONField
+    public final Map<String, Object> plugins = new TreeMap<>();
+
+    @JSONField
+    public final List<String> removedPlugins = new ArrayList<>();
+
+    @JSONField
+    public final Map<String, Object> deprecations = new TreeMap<>();
+
+    @JSONField
+    public final List<String> removedDeprecations = new ArrayList<>();
+
+    @JSONField
+    public final JSONArray warnings;
+
+    /**
+     * Computes the delta between two signed update site documents.
+     *
+     * @param previous the previous update site
+     * @param current the current update site
+     */
+    public UpdateCenterDelta(@Nonnull JSONObject previous, @Nonnull JSONObject current) {
+        this.id = current.getString("id");
+        this.from = getDigest(previous);
+        this.to = getDigest(current);
+        this.targetSignature = current.getJSONObject("signature");
+        this.baseGenerationTimestamp = previous.getString("generationTimestamp");
+        this.generationTimestamp = current.getString("generationTimestamp");
+
+        final String previousConnectionCheckUrl = previous.getString("connectionCheckUrl");
+        final String currentConnectionCheckUrl = current.getString("connectionCheckUrl");
+        this.connectionCheckUrl = Objects.equals(previousConnectionCheckUrl, currentConnectionCheckUrl) ? null : currentConnectionCheckUrl;
+
+        final JSONObject previousCore = previous.getJSONObject("core");
+        final JSONObject currentCore = current.getJSONObject("core");
+        this.core = Objects.equals(previousCore, currentCore) ? null : currentCore;
+
+        compare(previous.getJSONObject("plugins"), current.getJSONObject("plugins"), plugins, removedPlugins);
+        compare(previous.getJSONObject("deprecations"), current.getJSONObject("deprecations"), deprecations, removedDeprecations);
+
+        final JSONArray previousWarnings = previous.getJSONArray("warnings");
+        final JSONArray currentWarnings = current.getJSONArray("warnings");
+        this.warnings = Objects.equals(previousWarnings, currentWarnings) ? null : currentWarnings;
+    }
+
+    /**
+     * Returns the {@code generationTimestamp} of the update site this delta results in, so it can be applied like the
+     * other top-level fields.
+     */
+    @Override
+    public String getGenerationTimestamp() {
+        return generationTimestamp;
+    }
+
+    /**
+     * Returns the {@code correct_digest512} of the specified signed update site.
+     *
+     * @param updateCenter the update site
+     * @return the digest, or {@code null} if the update site is not signed
+     */
+    public static String getDigest(@Nonnull JSONObject updateCenter) {
+        final JSONObject signature = updateCenter.getJSONObject("signature");
+        return signature == null ? null : signature.getString("correct_digest512");
+    }
+
+    private static void compare(Map<String, Object> previous, Map<String, Object> current, Map<String, Object> changed, List<String> removed) {
+        final Map<String, Object> previousEntries = previous == null ? Map.of() : previous;
+        final Map<String, Object> currentEntries = current == null ? Map.of() : current;
+        for (Map.Entry<String, Object> entry : currentEntries.entrySet()) {
+            if (!Objects.equals(entry.getValue(), previousEntries.get(entry.getKey()))) {
+                changed.put(entry.getKey(), entry.getValue());
+            }
+        }
+        for (String key : previousEntries.keySet()) {
+            if (!currentEntries.containsKey(key)) {
+                removed.add(key);
+            }
+        }
+        Collections.sort(removed);
+    }
+}
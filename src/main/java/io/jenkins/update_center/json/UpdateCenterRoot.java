@@ -8,15 +8,22 @@ import io.jenkins.update_center.Deprecations;
 import io.jenkins.update_center.MavenRepository;
 import io.jenkins.update_center.Plugin;
 import io.jenkins.update_center.PluginUpdateCenterEntry;
+import io.jenkins.update_center.util.Environment;
 
+import javax.annotation.CheckForNull;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -26,6 +33,8 @@ import org.apache.commons.lang3.StringUtils;
 public class UpdateCenterRoot extends WithSignature {
     private static final Logger LOGGER = Logger.getLogger(UpdateCenterRoot.class.getName());
 
+    private static final int PARALLELISM = Environment.getInteger("UPDATE_CENTER_PARALLELISM", Runtime.getRuntime().availableProcessors());
+
     @JSONField
     @SuppressFBWarnings(value = "SS_SHOULD_BE_STATIC", justification = "Accessed by JSON serializer")
     public final String updateCenterVersion = "1";
@@ -65,18 +74,51 @@ public class UpdateCenterRoot extends WithSignature {
         // load deprecations
         deprecations = new TreeMap<>(Deprecations.getDeprecatedPlugins().collect(Collectors.toMap(Function.identity(), UpdateCenterRoot::deprecationForPlugin)));
 
-        for (Plugin plugin : repo.listJenkinsPlugins()) {
-            try {
-                PluginUpdateCenterEntry entry = new PluginUpdateCenterEntry(plugin);
-                plugins.put(plugin.getArtifactId(), entry);
-            } catch (IOException ex) {
-                LOGGER.log(Level.INFO, "Failed to add update center entry for: " + plugin, ex);
-            }
+        for (PluginUpdateCenterEntry entry : createEntries(repo.listJenkinsPlugins())) {
+            plugins.put(entry.artifactId, entry);
         }
 
         core = new UpdateCenterCore(repo.getJenkinsWarsByVersionNumber());
     }
 
+    /**
+     * Creates the update center entries for the specified plugins in parallel.
+     * Entries resolve all their metadata on creation, so the expensive part of update center generation happens here
+     * rather than during serialization.
+     *
+     * @param plugins the plugins to create entries for
+     * @return the entries for all plugins that have a valid release
+     * @throws IOException if the metadata of a plugin could not be accessed, or entry creation is interrupted
+     */
+    private static List<PluginUpdateCenterEntry> createEntries(Collection<Plugin> plugins) throws IOException {
+        try (ForkJoinPool pool = new ForkJoinPool(PARALLELISM)) {
+            return pool.submit(() -> plugins.parallelStream()
+                    .map(UpdateCenterRoot::createEntry)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList())).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IOException("Failed to create update center entries", e);
+        } catch (InterruptedException e) {
+            throw new IOException("Failed to create update center entries", e);
+        }
+    }
+
+    @CheckForNull
+    private static PluginUpdateCenterEntry createEntry(Plugin plugin) {
+        try {
+            final PluginUpdateCenterEntry entry = PluginUpdateCenterEntry.forPlugin(plugin);
+            if (entry == null) {
+                LOGGER.log(Level.INFO, "Plugin has no valid release, skipping: " + plugin);
+            }
+            return entry;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(new IOException("Failed to create update center entry for " + plugin, ex));
+        }
+    }
+
     private static UpdateCenterDeprecation deprecationForPlugin(String artifactId) {
         String deprecationUrl = Deprecations.getCustomDeprecationUri(artifactId);
         String noticeUrl = deprecationUrl != null ? deprecationUrl : BaseMavenRepository.getIgnoreNoticeUrl(artifactId);
@@ -3,6 +3,7 @@ package io.jenkins.update_center.json;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.annotation.JSONField;
 import com.alibaba.fastjson.serializer.SerializerFeature;
+import io.jenkins.update_center.OutputFiles;
 import io.jenkins.update_center.Signer;
 
 import io.jenkins.update_center.util.Timestamp;
@@ -13,7 +14,6 @@ import java.io.OutputStreamWriter;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.security.GeneralSecurityException;
 
 /**
@@ -79,7 +79,7 @@ public abstract class WithSignature {
      * @throws GeneralSecurityException when an issue during signing occurs
      */
     public void writeWithSignature(File outputFile, Signer signer, boolean pretty) throws IOException, GeneralSecurityException {
-        try (OutputStream os = Files.newOutputStream(outputFile.toPath()); OutputStreamWriter writer = new OutputStreamWriter(os, StandardCharsets.UTF_8)) {
+        try (OutputStream os = OutputFiles.getInstance().newOutputStream(outputFile); OutputStreamWriter writer = new OutputStreamWriter(os, StandardCharsets.UTF_8)) {
             writeWithSignature(writer, signer, pretty);
         }
     }
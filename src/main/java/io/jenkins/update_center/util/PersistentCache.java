@@ -0,0 +1,147 @@
+package io.jenkins.update_center.util;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A string cache stored in a file between executions, for values derived from immutable inputs.
+ *
+ * <p>Keys should identify the input (e.g. by content hash) and the version of the code deriving the value from it.
+ * Only entries that were looked up or added since the cache was loaded are saved, so entries for inputs no longer in
+ * use are dropped. Keys and values must not contain tabs or line breaks.</p>
+ */
+public final class PersistentCache {
+    private static final Logger LOGGER = Logger.getLogger(PersistentCache.class.getName());
+
+    private final String name;
+
+    @CheckForNull
+    private File file;
+
+    private volatile Map<String, String> loadedEntries = new HashMap<>();
+
+    private final Map<String, String> usedEntries = new ConcurrentHashMap<>();
+
+    /**
+     * @param name a description of the cached values for log messages
+     */
+    public PersistentCache(@Nonnull String name) {
+        this.name = name;
+    }
+
+    /**
+     * Loads the cache from the specified file. A missing or unreadable file results in an empty cache.
+     * Does nothing if the cache was already loaded from the same file, e.g. in an earlier execution from the same
+     * arguments file.
+     *
+     * @param file the cache file
+     * @return {@code true} if the cache was loaded, {@code false} if it was already loaded from this file
+     */
+    public synchronized boolean load(@Nonnull File file) {
+        if (file.equals(this.file)) {
+            return false;
+        }
+        final Map<String, String> entries = new HashMap<>();
+        if (file.isFile()) {
+            try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    final String[] parts = line.split("\t", 2);
+                    if (parts.length == 2) {
+                        entries.put(parts[0], parts[1]);
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to read " + name + " cache from " + file + ", starting with an empty cache", e);
+                entries.clear();
+            }
+        }
+        LOGGER.log(Level.INFO, () -> "Loaded " + entries.size() + " cached " + name + " entries");
+        usedEntries.clear();
+        loadedEntries = entries;
+        this.file = file;
+        return true;
+    }
+
+    /**
+     * @return whether the cache was loaded from a file, i.e. whether values added to it are retained
+     */
+    public boolean isEnabled() {
+        return file != null;
+    }
+
+    /**
+     * Looks up a value, and retains it when saving.
+     *
+     * @param key the key
+     * @return the value, or {@code null} if the key is not in the cache
+     */
+    @CheckForNull
+    public String get(@Nonnull String key) {
+        final String added = usedEntries.get(key);
+        if (added != null) {
+            return added;
+        }
+        final String value = loadedEntries.get(key);
+        if (value != null) {
+            usedEntries.put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Adds a value to be saved. Does nothing unless the cache is {@link #isEnabled() enabled}.
+     *
+     * @param key the key
+     * @param value the value
+     */
+    public void put(@Nonnull String key, @Nonnull String value) {
+        if (isEnabled()) {
+            usedEntries.put(key, value);
+        }
+    }
+
+    /**
+     * Removes a value, so it is not saved even if it was looked up before.
+     *
+     * @param key the key
+     */
+    public void remove(@Nonnull String key) {
+        usedEntries.remove(key);
+    }
+
+    /**
+     * Writes all entries looked up or added since the cache was loaded back to its file.
+     *
+     * @throws IOException if writing fails
+     */
+    public void save() throws IOException {
+        final File file = this.file;
+        if (file == null) {
+            return;
+        }
+        final File parent = file.getAbsoluteFile().getParentFile();
+        if (!parent.mkdirs() && !parent.isDirectory()) {
+            throw new IOException("Failed to create " + parent);
+        }
+        final File tmp = new File(parent, "." + file.getName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, String> entry : usedEntries.entrySet()) {
+                writer.write(entry.getKey() + "\t" + entry.getValue() + "\n");
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -54,6 +54,11 @@ public class MavenRepositoryWrapper implements MavenRepository {
         return base.getZipFileEntry(artifact, path);
     }
 
+    @Override
+    public Map<String, byte[]> getZipFileEntries(MavenArtifact artifact, Collection<String> paths) throws IOException {
+        return base.getZipFileEntries(artifact, paths);
+    }
+
     @Override
     public File resolve(ArtifactCoordinates artifact) throws IOException {
         return base.resolve(artifact);
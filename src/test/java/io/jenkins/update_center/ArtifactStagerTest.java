@@ -0,0 +1,271 @@
+package io.jenkins.update_center;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+public class ArtifactStagerTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private class TestRepository extends BaseMavenRepository {
+        @Override
+        protected Set<ArtifactCoordinates> listAllJenkinsWars(String groupId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Collection<ArtifactCoordinates> listAllPlugins() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ArtifactMetadata getMetadata(MavenArtifact artifact) throws IOException {
+            final ArtifactMetadata metadata = new ArtifactMetadata();
+            metadata.sha256 = Base64.encodeBase64String(DigestUtils.sha256(Files.readAllBytes(getFile(artifact.artifact).toPath())));
+            return metadata;
+        }
+
+        @Override
+        public Manifest getManifest(MavenArtifact artifact) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public InputStream getZipFileEntry(MavenArtifact artifact, String path) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public File resolve(ArtifactCoordinates artifact) throws IOException {
+            return getFile(artifact);
+        }
+
+        private File getFile(ArtifactCoordinates artifact) throws IOException {
+            final File file = new File(tmp.getRoot(), "repo/" + artifact.artifactId + "-" + artifact.version + ".hpi");
+            if (!file.exists()) {
+                throw new IOException("Not found: " + artifact);
+            }
+            return file;
+        }
+    }
+
+    private void release(String version, String content) throws IOException {
+        final File file = new File(tmp.getRoot(), "repo/foo-" + version + ".hpi");
+        Files.createDirectories(file.getParentFile().toPath());
+        // Replace rather than overwrite, like the repository cache does; the staged file is a link to the same inode
+        final File tmpFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        Files.write(tmpFile.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Test
+    public void stage() throws IOException {
+        final TestRepository repository = new TestRepository();
+        final MavenArtifact first = new MavenArtifact(repository, new ArtifactCoordinates("g", "foo", "1.0", "hpi"));
+        final MavenArtifact second = new MavenArtifact(repository, new ArtifactCoordinates("g", "foo", "1.1", "hpi"));
+        final MavenArtifact missing = new MavenArtifact(repository, new ArtifactCoordinates("g", "foo", "1.2", "hpi"));
+        release("1.0", "first");
+        release("1.1", "second");
+        final File download = tmp.newFolder("download");
+
+        try (ArtifactStager stager = new ArtifactStager()) {
+            stager.stage(first, new File(download, "1.0/foo.hpi"));
+            stager.stage(second, new File(download, "1.1/foo.hpi"));
+            stager.finish();
+            assertThat(stager.getLinked(), is(2));
+        }
+        assertThat(Files.isSameFile(new File(download, "1.0/foo.hpi").toPath(), repository.resolve(first.artifact).toPath()), is(true));
+
+        // Replace a changed file, skip an unchanged one, and report a missing one
+        release("1.1", "second, rebuilt");
+        try (ArtifactStager stager = new ArtifactStager()) {
+            stager.stage(first, new File(download, "1.0/foo.hpi"));
+            stager.stage(second, new File(download, "1.1/foo.hpi"));
+            stager.stage(missing, new File(download, "1.2/foo.hpi"));
+            try {
+                stager.finish();
+                throw new AssertionError("Expected failure");
+            } catch (IOException expected) {
+                // expected
+            }
+            assertThat(stager.getLinked(), is(1));
+            assertThat(stager.getSkipped(), is(1));
+            assertThat(stager.getFailed(), is(1));
+        }
+        assertThat(new String(Files.readAllBytes(new File(download, "1.1/foo.hpi").toPath()), StandardCharsets.UTF_8), is("second, rebuilt"));
+        assertThat(new File(download, "1.1").list(), arrayContaining("foo.hpi"));
+    }
+
+    @Test
+    public void journal() throws IOException {
+        final File journal = new File(tmp.getRoot(), "staging-journal.txt");
+        final File download = tmp.newFolder("download");
+        final AtomicBoolean staged = new AtomicBoolean();
+        final MavenArtifact artifact = new MavenArtifact(new TestRepository() {
+            @Override
+            public File resolve(ArtifactCoordinates artifact) throws IOException {
+                if (staged.get()) {
+                    throw new IOException("Unexpectedly resolving " + artifact);
+                }
+                return super.resolve(artifact);
+            }
+        }, new ArtifactCoordinates("g", "foo", "1.0", "hpi"));
+        release("1.0", "first");
+
+        try (ArtifactStager stager = new ArtifactStager(journal)) {
+            stager.stage(artifact, new File(download, "1.0/foo.hpi"));
+            stager.finish();
+            assertThat(stager.getLinked(), is(1));
+        }
+
+        // Only the metadata from the repository listing is needed to skip a staged artifact
+        staged.set(true);
+        try (ArtifactStager stager = new ArtifactStager(journal)) {
+            stager.stage(artifact, new File(download, "1.0/foo.hpi"));
+            stager.finish();
+            assertThat(stager.getJournaled(), is(1));
+        }
+    }
+
+    @Test
+    public void journalSkipsFailures() throws IOException {
+        final File journal = new File(tmp.getRoot(), "staging-journal.txt");
+        final File download = tmp.newFolder("download");
+        final MavenArtifact artifact = new MavenArtifact(new TestRepository(), new ArtifactCoordinates("g", "foo", "1.0", "hpi"));
+        release("1.0", "first");
+        // Cannot create the destination directory
+        Files.write(new File(download, "1.0").toPath(), new byte[0]);
+
+        try (ArtifactStager stager = new ArtifactStager(journal)) {
+            stager.stage(artifact, new File(download, "1.0/foo.hpi"));
+            try {
+                stager.finish();
+                throw new AssertionError("Expected failure");
+            } catch (IOException e) {
+                // expected
+            }
+            assertThat(stager.getFailed(), is(1));
+        }
+        assertThat(Files.readAllLines(journal.toPath(), StandardCharsets.UTF_8), empty());
+
+        Files.delete(new File(download, "1.0").toPath());
+        try (ArtifactStager stager = new ArtifactStager(journal)) {
+            stager.stage(artifact, new File(download, "1.0/foo.hpi"));
+            stager.finish();
+            assertThat(stager.getLinked(), is(1));
+        }
+    }
+
+    @Test
+    public void audit() throws IOException {
+        final TestRepository repository = new TestRepository();
+        final MavenArtifact first = new MavenArtifact(repository, new ArtifactCoordinates("g", "foo", "1.0", "hpi"));
+        final MavenArtifact second = new MavenArtifact(repository, new ArtifactCoordinates("g", "foo", "1.1", "hpi"));
+        final MavenArtifact third = new MavenArtifact(repository, new ArtifactCoordinates("g", "foo", "1.2", "hpi"));
+        release("1.0", "first");
+        release("1.1", "second");
+        release("1.2", "third");
+        final File download = tmp.newFolder("download");
+        try (ArtifactStager stager = new ArtifactStager()) {
+            stager.stage(first, new File(download, "1.0/foo.hpi"));
+            stager.stage(second, new File(download, "1.1/foo.hpi"));
+            stager.finish();
+        }
+        // Corrupt a staged file; this also corrupts the linked repository file, so replace that
+        Files.write(new File(download, "1.1/foo.hpi").toPath(), "corrupt".getBytes(StandardCharsets.UTF_8));
+        release("1.1", "second");
+
+        try (DownloadsAuditor auditor = new DownloadsAuditor(false)) {
+            auditor.audit(first, new File(download, "1.0/foo.hpi"));
+            auditor.audit(second, new File(download, "1.1/foo.hpi"));
+            auditor.audit(third, new File(download, "1.2/foo.hpi"));
+            try {
+                auditor.finish();
+                throw new AssertionError("Expected failure");
+            } catch (IOException e) {
+                // expected
+            }
+            assertThat(auditor.getMatching(), is(1));
+            assertThat(auditor.getMismatching(), is(1));
+            assertThat(auditor.getMissing(), is(1));
+        }
+
+        try (DownloadsAuditor auditor = new DownloadsAuditor(true)) {
+            auditor.audit(first, new File(download, "1.0/foo.hpi"));
+            auditor.audit(second, new File(download, "1.1/foo.hpi"));
+            auditor.audit(third, new File(download, "1.2/foo.hpi"));
+            auditor.finish();
+            assertThat(auditor.getRestaged(), is(2));
+        }
+        assertThat(new String(Files.readAllBytes(new File(download, "1.1/foo.hpi").toPath()), StandardCharsets.UTF_8), is("second"));
+        assertThat(DownloadsAuditor.sha256(new File(download, "1.2/foo.hpi").toPath()), is(DigestUtils.sha256("third")));
+    }
+
+    private static Map<String, String> snapshot(File dir) throws IOException {
+        final Map<String, String> files = new TreeMap<>();
+        try (Stream<Path> paths = Files.walk(dir.toPath())) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                files.put(dir.toPath().relativize(path).toString(), Files.isRegularFile(path) ? DigestUtils.sha256Hex(Files.readAllBytes(path)) : "");
+            }
+        }
+        return files;
+    }
+
+    @Test
+    public void auditLeavesDownloadsUnchanged() throws IOException {
+        final TestRepository repository = new TestRepository() {
+            @Override
+            protected Set<ArtifactCoordinates> listAllJenkinsWars(String groupId) {
+                return Set.of();
+            }
+
+            @Override
+            public Collection<ArtifactCoordinates> listAllPlugins() {
+                return List.of(new ArtifactCoordinates("g", "foo", "1.0", "hpi"), new ArtifactCoordinates("g", "foo", "1.1", "hpi"));
+            }
+        };
+        release("1.0", "first");
+        release("1.1", "second");
+        final File download = tmp.newFolder("download");
+        Files.createDirectories(new File(download, "plugins/foo/1.0").toPath());
+        Files.write(new File(download, "plugins/foo/1.0/foo.hpi").toPath(), "first".getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(download, "plugins/foo/latest").toPath(), "1.0".getBytes(StandardCharsets.UTF_8));
+        final Map<String, String> before = snapshot(download);
+
+        final DirectoryTreeBuilder builder = new DirectoryTreeBuilder();
+        builder.download = download;
+        builder.auditDownloads = true;
+        builder.checksums = true;
+        try {
+            builder.build(repository);
+            throw new AssertionError("Expected failure");
+        } catch (IOException e) {
+            // expected, 1.1 is missing
+        }
+        assertThat(snapshot(download), is(before));
+    }
+}
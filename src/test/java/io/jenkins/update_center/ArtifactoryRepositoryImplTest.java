@@ -0,0 +1,97 @@
+package io.jenkins.update_center;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class ArtifactoryRepositoryImplTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    // A group ID that is not in the local Maven repository, so archives are only found in the cache directory
+    private static final String GROUP_ID = "io.jenkins.update-center2.test";
+
+    private static final String REPOSITORY_URL = "https://repo.jenkins-ci.org/releases/";
+
+    private File cacheDirectory;
+
+    private ArtifactoryRepositoryImpl repository;
+
+    @Before
+    public void setUp() throws IOException {
+        cacheDirectory = tmp.newFolder("cache");
+        repository = new ArtifactoryRepositoryImpl("user", "password", cacheDirectory);
+    }
+
+    private MavenArtifact artifact(String version) {
+        return new MavenArtifact(repository, new ArtifactCoordinates(GROUP_ID, "foo", version, "hpi"));
+    }
+
+    private static String url(String version) {
+        return REPOSITORY_URL + GROUP_ID.replace('.', '/') + "/foo/" + version + "/foo-" + version + ".hpi";
+    }
+
+    /**
+     * The file that the download from the specified URL is cached in, like {@code ArtifactoryRepositoryImpl#getCacheFile}.
+     */
+    private File cacheFile(String url) {
+        final String sha256 = DigestUtils.sha256Hex(URI.create(url).getPath());
+        final File file = new File(new File(cacheDirectory, sha256.substring(0, 2)), sha256);
+        if (!file.getParentFile().mkdirs() && !file.getParentFile().isDirectory()) {
+            throw new IllegalStateException("Failed to create " + file.getParentFile());
+        }
+        return file;
+    }
+
+    @Test
+    public void readsEntriesFromCachedArchive() throws IOException {
+        final Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().putValue("Jenkins-Version", "2.414.3");
+        try (JarOutputStream jar = new JarOutputStream(new FileOutputStream(cacheFile(url("1.0"))), manifest)) {
+            jar.putNextEntry(new JarEntry("index.jelly"));
+            jar.write("<div>Foo</div>".getBytes(StandardCharsets.UTF_8));
+            jar.putNextEntry(new JarEntry("WEB-INF/licenses.xml"));
+            jar.write("<licenses/>".getBytes(StandardCharsets.UTF_8));
+        }
+
+        final Map<String, byte[]> entries = repository.getZipFileEntries(artifact("1.0"), Arrays.asList("index.jelly", "/WEB-INF/licenses.xml", "missing.txt"));
+        assertThat(entries.keySet(), contains("index.jelly", "/WEB-INF/licenses.xml"));
+        assertThat(new String(entries.get("index.jelly"), StandardCharsets.UTF_8), is("<div>Foo</div>"));
+        assertThat(new String(entries.get("/WEB-INF/licenses.xml"), StandardCharsets.UTF_8), is("<licenses/>"));
+
+        assertThat(repository.getManifest(artifact("1.0")).getMainAttributes().getValue("Jenkins-Version"), is("2.414.3"));
+    }
+
+    @Test
+    public void fallsBackToEntryRequests() throws IOException {
+        // A directory records a failed download of the archive
+        Files.createDirectory(cacheFile(url("1.1")).toPath());
+        // Entries requested individually, one cached, and one recorded as failed
+        Files.write(cacheFile(url("1.1") + "!/index.jelly").toPath(), "<div>Foo</div>".getBytes(StandardCharsets.UTF_8));
+        Files.createDirectory(cacheFile(url("1.1") + "!/missing.txt").toPath());
+
+        final Map<String, byte[]> entries = repository.getZipFileEntries(artifact("1.1"), Arrays.asList("index.jelly", "missing.txt"));
+        assertThat(entries.keySet(), contains("index.jelly"));
+        assertThat(new String(entries.get("index.jelly"), StandardCharsets.UTF_8), is("<div>Foo</div>"));
+    }
+}
@@ -0,0 +1,24 @@
+package io.jenkins.update_center;
+
+import org.junit.Test;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks and writes the results to {@code target/jmh-report.json}, so they can be compared between
+ * builds to detect regressions.
+ * Not run by default; use {@code mvn test -P benchmark}.
+ */
+public class BenchmarkRunner {
+    @Test
+    public void runBenchmarks() throws Exception {
+        final Options options = new OptionsBuilder()
+                .include(HotPathBenchmark.class.getName())
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-report.json")
+                .build();
+        new Runner(options).run();
+    }
+}
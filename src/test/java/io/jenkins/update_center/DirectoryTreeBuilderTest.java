@@ -0,0 +1,119 @@
+package io.jenkins.update_center;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.Manifest;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayContainingInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+public class DirectoryTreeBuilderTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static final FileTime OLD = FileTime.fromMillis(1_000_000_000_000L);
+
+    private static class TestRepository extends BaseMavenRepository {
+        private final Map<String, String> sha256 = new HashMap<>();
+
+        @Override
+        protected Set<ArtifactCoordinates> listAllJenkinsWars(String groupId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Collection<ArtifactCoordinates> listAllPlugins() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ArtifactMetadata getMetadata(MavenArtifact artifact) {
+            final ArtifactMetadata metadata = new ArtifactMetadata();
+            metadata.sha256 = sha256.get(artifact.version);
+            return metadata;
+        }
+
+        @Override
+        public Manifest getManifest(MavenArtifact artifact) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public InputStream getZipFileEntry(MavenArtifact artifact, String path) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public File resolve(ArtifactCoordinates artifact) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static String sha256Base64(String content) {
+        return Base64.encodeBase64String(DigestUtils.sha256(content));
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void writeChecksums() throws IOException {
+        final TestRepository repository = new TestRepository();
+        repository.sha256.put("1.0", sha256Base64("first"));
+        repository.sha256.put("1.1", sha256Base64("second"));
+        final List<MavenArtifact> artifacts = Arrays.asList(
+                new MavenArtifact(repository, new ArtifactCoordinates("g", "foo", "1.0", "hpi")),
+                new MavenArtifact(repository, new ArtifactCoordinates("g", "foo", "1.1", "hpi")),
+                new MavenArtifact(repository, new ArtifactCoordinates("g", "foo", "1.2", "hpi")));
+        final File dir = new File(tmp.getRoot(), "plugins/foo");
+
+        DirectoryTreeBuilder.writeChecksums(dir, artifacts, a -> a.version + "/foo.hpi");
+
+        // sha256sum format: lowercase hex, two spaces, path relative to the directory containing the checksum file
+        final String first = DigestUtils.sha256Hex("first");
+        final String second = DigestUtils.sha256Hex("second");
+        assertThat(read(new File(dir, "1.0/foo.hpi.sha256")), is(first + "  foo.hpi\n"));
+        assertThat(read(new File(dir, "1.1/foo.hpi.sha256")), is(second + "  foo.hpi\n"));
+        assertThat(read(new File(dir, "SHA256SUMS")), is(first + "  1.0/foo.hpi\n" + second + "  1.1/foo.hpi\n"));
+        // Releases without checksum are skipped
+        assertThat(new File(dir, "1.2").exists(), is(false));
+        assertThat(dir.list(), arrayContainingInAnyOrder("1.0", "1.1", "SHA256SUMS"));
+
+        // Unchanged files are not rewritten
+        final File[] files = { new File(dir, "1.0/foo.hpi.sha256"), new File(dir, "1.1/foo.hpi.sha256"), new File(dir, "SHA256SUMS") };
+        for (File file : files) {
+            Files.setLastModifiedTime(file.toPath(), OLD);
+        }
+        DirectoryTreeBuilder.writeChecksums(dir, artifacts, a -> a.version + "/foo.hpi");
+        for (File file : files) {
+            assertThat(file + " was rewritten", Files.getLastModifiedTime(file.toPath()), is(OLD));
+        }
+
+        // Changed files are replaced
+        repository.sha256.put("1.1", sha256Base64("second, rebuilt"));
+        DirectoryTreeBuilder.writeChecksums(dir, artifacts, a -> a.version + "/foo.hpi");
+        assertThat(Files.getLastModifiedTime(files[0].toPath()), is(OLD));
+        assertThat(Files.getLastModifiedTime(files[1].toPath()), not(is(OLD)));
+        assertThat(read(files[1]), is(DigestUtils.sha256Hex("second, rebuilt") + "  foo.hpi\n"));
+        assertThat(Files.getLastModifiedTime(files[2].toPath()), not(is(OLD)));
+    }
+}
@@ -2,6 +2,7 @@ package io.jenkins.update_center;
 
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -19,4 +20,17 @@ public class HPITest {
         assertFalse(HPI.isValidCoreDependency("2.0-rc-1"));
         assertFalse(HPI.isValidCoreDependency("2.0-rc-1.vabcd1234"));
     }
+
+    @Test
+    public void dependency() {
+        HPI.Dependency dependency = new HPI.Dependency("structs:325.vcb_307d2a_2782");
+        assertEquals("structs", dependency.name);
+        assertEquals("325.vcb_307d2a_2782", dependency.version);
+        assertFalse(dependency.optional);
+
+        dependency = new HPI.Dependency("scm-api:683.vb_16722fb_b_80b_;resolution:=optional");
+        assertEquals("scm-api", dependency.name);
+        assertEquals("683.vb_16722fb_b_80b_", dependency.version);
+        assertTrue(dependency.optional);
+    }
 }
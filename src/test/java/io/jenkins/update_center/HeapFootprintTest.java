@@ -0,0 +1,177 @@
+package io.jenkins.update_center;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.anyOf;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThrows;
+
+/**
+ * Guards against retaining large per-release objects (like parsed manifests) in the catalog.
+ *
+ * <p>Rather than measuring the heap, which depends on garbage collection and on other tests running in the same JVM,
+ * this inspects what a release references after its manifest has been read.</p>
+ */
+public class HeapFootprintTest {
+    private static class TestRepository extends BaseMavenRepository {
+        @Override
+        protected Set<ArtifactCoordinates> listAllJenkinsWars(String groupId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Collection<ArtifactCoordinates> listAllPlugins() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ArtifactMetadata getMetadata(MavenArtifact artifact) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Manifest getManifest(MavenArtifact artifact) {
+            // Resembles the manifest of a typical plugin
+            final Manifest manifest = new Manifest();
+            final Attributes attributes = manifest.getMainAttributes();
+            attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+            attributes.putValue("Created-By", "Maven JAR Plugin 3.3.0");
+            attributes.putValue("Build-Jdk-Spec", "17");
+            attributes.putValue("Specification-Title", artifact.artifact.artifactId);
+            attributes.putValue("Specification-Version", artifact.version);
+            attributes.putValue("Implementation-Title", artifact.artifact.artifactId);
+            attributes.putValue("Implementation-Version", artifact.version);
+            attributes.putValue("Group-Id", artifact.artifact.groupId);
+            attributes.putValue("Artifact-Id", artifact.artifact.artifactId);
+            attributes.putValue("Short-Name", artifact.artifact.artifactId);
+            attributes.putValue("Long-Name", "The " + artifact.artifact.artifactId + " Plugin");
+            attributes.putValue("Url", "https://github.com/jenkinsci/" + artifact.artifact.artifactId + "-plugin");
+            attributes.putValue("Plugin-Version", artifact.version);
+            attributes.putValue("Hudson-Version", "2.414.3");
+            attributes.putValue("Jenkins-Version", "2.414.3");
+            attributes.putValue("Plugin-Dependencies", "structs:325.vcb_307d2a_2782,workflow-api:1291.v51fd2a_625da_7,scm-api:683.vb_16722fb_b_80b_");
+            attributes.putValue("Plugin-Developers", "Some Developer:developer:developer@example.org");
+            attributes.putValue("Plugin-License-Name", "MIT License");
+            attributes.putValue("Plugin-License-Url", "https://opensource.org/licenses/MIT");
+            attributes.putValue("Plugin-ScmConnection", "scm:git:https://github.com/jenkinsci/" + artifact.artifact.artifactId + "-plugin.git");
+            attributes.putValue("Plugin-ScmTag", "v" + artifact.version);
+            attributes.putValue("Plugin-ScmUrl", "https://github.com/jenkinsci/" + artifact.artifact.artifactId + "-plugin");
+            attributes.putValue("Plugin-GitHash", Long.toHexString(artifact.hashCode()) + "0123456789abcdef0123456789abcdef");
+            attributes.putValue("Minimum-Java-Version", "11");
+            return manifest;
+        }
+
+        @Override
+        public InputStream getZipFileEntry(MavenArtifact artifact, String path) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public File resolve(ArtifactCoordinates artifact) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Collects the objects reachable from {@code root} through collections and the fields of classes in this package.
+     * Classes from elsewhere, like {@link String}, are not inspected further.
+     *
+     * @param root the object to start from
+     * @param shared objects not retained by {@code root} alone, like the repository
+     */
+    private static List<Object> retained(Object root, Object... shared) throws IllegalAccessException {
+        final List<Object> retained = new ArrayList<>();
+        final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        visited.addAll(Arrays.asList(shared));
+        final Deque<Object> pending = new ArrayDeque<>();
+        pending.add(root);
+        while (!pending.isEmpty()) {
+            final Object o = pending.remove();
+            if (!visited.add(o)) {
+                continue;
+            }
+            retained.add(o);
+            final List<Object> references = new ArrayList<>();
+            if (o instanceof Object[]) {
+                references.addAll(Arrays.asList((Object[]) o));
+            } else if (o instanceof Collection) {
+                references.addAll((Collection<?>) o);
+            } else if (o instanceof Map) {
+                references.addAll(((Map<?, ?>) o).keySet());
+                references.addAll(((Map<?, ?>) o).values());
+            } else if (o.getClass().getName().startsWith(HeapFootprintTest.class.getPackage().getName() + ".")) {
+                for (Class<?> c = o.getClass(); c != Object.class; c = c.getSuperclass()) {
+                    for (Field field : c.getDeclaredFields()) {
+                        if (!Modifier.isStatic(field.getModifiers()) && !field.getType().isPrimitive()) {
+                            field.setAccessible(true);
+                            references.add(field.get(o));
+                        }
+                    }
+                }
+            }
+            references.stream().filter(Objects::nonNull).forEach(pending::add);
+        }
+        return retained;
+    }
+
+    @Test
+    public void releasesRetainNoManifest() throws Exception {
+        final TestRepository repository = new TestRepository();
+        final Plugin plugin = new Plugin("foo");
+        final HPI hpi = new HPI(repository, new ArtifactCoordinates("org.jenkins-ci.plugins", "foo", "1.0", "hpi"), plugin);
+        assertThat(hpi.getRequiredJenkinsVersion(), is("2.414.3"));
+        assertThat(hpi.getDependencies().size(), is(3));
+        assertThat(hpi.getCompatibleSinceVersion(), nullValue());
+
+        final List<Object> retained = retained(hpi, repository, plugin);
+        assertThat(retained, hasItem(instanceOf(ManifestAttributes.class)));
+        for (Object o : retained) {
+            // Also covers Attributes, which is a Map
+            assertThat(o, not(anyOf(instanceOf(Manifest.class), instanceOf(Map.class))));
+        }
+    }
+
+    @Test
+    public void manifestAttributesRetainOnlyKnownValues() throws Exception {
+        final TestRepository repository = new TestRepository();
+        final Manifest manifest = repository.getManifest(new MavenArtifact(repository, new ArtifactCoordinates("org.jenkins-ci.plugins", "foo", "1.0", "hpi")));
+        final ManifestAttributes attributes = ManifestAttributes.of(manifest);
+
+        // Jenkins-Version and Hudson-Version share the same value
+        assertThat(retained(attributes).stream().filter(String.class::isInstance).collect(Collectors.toList()), containsInAnyOrder(
+                "2.414.3",
+                "structs:325.vcb_307d2a_2782,workflow-api:1291.v51fd2a_625da_7,scm-api:683.vb_16722fb_b_80b_",
+                "https://github.com/jenkinsci/foo-plugin"));
+        assertThrows(IllegalArgumentException.class, () -> attributes.getValue("Created-By"));
+
+        // Core versions are shared by the releases requiring them
+        final Manifest other = repository.getManifest(new MavenArtifact(repository, new ArtifactCoordinates("org.jenkins-ci.plugins", "bar", "2.0", "hpi")));
+        assertThat(ManifestAttributes.of(other).getValue("Jenkins-Version"), sameInstance(attributes.getValue("Jenkins-Version")));
+    }
+}
@@ -0,0 +1,117 @@
+package io.jenkins.update_center;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Manifest;
+
+/**
+ * Benchmarks for checks and parsers that run for every release, or every file in the repository.
+ * Run with {@code mvn test -P benchmark}, see {@link BenchmarkRunner}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HotPathBenchmark {
+    private static final String[] CORE_VERSIONS = { "2.414.3", "2.440", "1.580.1", "2.100-SNAPSHOT", "2.0-rc-1" };
+    private static final String[] VERSIONS = { "1.0", "325.vcb_307d2a_2782", "2.0-beta-1", "1.5-ALPHA", "latest" };
+    private static final String[] DEPENDENCIES = { "structs:325.vcb_307d2a_2782", "workflow-api:1291.v51fd2a_625da_7", "scm-api:683.vb_16722fb_b_80b_;resolution:=optional" };
+    private static final String[][] FILES = {
+            { "org/jenkins-ci/plugins/workflow/workflow-api/1291.v51fd2a_625da_7", "workflow-api-1291.v51fd2a_625da_7.hpi" },
+            { "org/jenkins-ci/plugins/structs/325.vcb_307d2a_2782", "structs-325.vcb_307d2a_2782.pom" },
+            { "org/jenkins-ci/main/jenkins-war/2.440", "jenkins-war-2.440.war" },
+    };
+
+    private MavenArtifact[] artifacts;
+
+    @Setup
+    public void setup() {
+        final BaseMavenRepository repository = new BaseMavenRepository() {
+            @Override
+            protected Set<ArtifactCoordinates> listAllJenkinsWars(String groupId) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Collection<ArtifactCoordinates> listAllPlugins() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public ArtifactMetadata getMetadata(MavenArtifact artifact) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Manifest getManifest(MavenArtifact artifact) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public InputStream getZipFileEntry(MavenArtifact artifact, String path) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public File resolve(ArtifactCoordinates artifact) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        artifacts = new MavenArtifact[VERSIONS.length];
+        for (int i = 0; i < VERSIONS.length; i++) {
+            artifacts[i] = new MavenArtifact(repository, new ArtifactCoordinates("org.jenkins-ci.plugins", "foo", VERSIONS[i], "hpi"));
+        }
+    }
+
+    @Benchmark
+    public void isValidCoreDependency(Blackhole blackhole) {
+        for (String version : CORE_VERSIONS) {
+            blackhole.consume(HPI.isValidCoreDependency(version));
+        }
+    }
+
+    @Benchmark
+    public void isVersionValid(Blackhole blackhole) {
+        for (MavenArtifact artifact : artifacts) {
+            blackhole.consume(artifact.artifact.isVersionValid());
+        }
+    }
+
+    @Benchmark
+    public void isAlphaOrBeta(Blackhole blackhole) {
+        for (MavenArtifact artifact : artifacts) {
+            blackhole.consume(artifact.isAlphaOrBeta());
+        }
+    }
+
+    @Benchmark
+    public void parseDependency(Blackhole blackhole) {
+        for (String dependency : DEPENDENCIES) {
+            blackhole.consume(new HPI.Dependency(dependency));
+        }
+    }
+
+    @Benchmark
+    public void toGav(Blackhole blackhole) {
+        for (String[] file : FILES) {
+            blackhole.consume(ArtifactoryRepositoryImpl.toGav(file[0], file[1]));
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package io.jenkins.update_center;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.function.ThrowingRunnable;
+import org.junit.rules.TemporaryFolder;
+
+import javax.annotation.Nonnull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Date;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.emptyArray;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThrows;
+
+public class IndexHtmlBuilderTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static final String ENTRIES = "<li><a class=\"version\" href='/latest/foo.hpi'>permalink to the latest</a><div class=\"metadata\">\n"
+            + "<div class=\"released\"></div></div></li>\n"
+            + "<li><a class=\"version\" href='https://example.org/foo.hpi'>1.0</a><div class=\"metadata\">\n"
+            + "<div class=\"released\"></div></div></li>\n";
+
+    private String render(String template) throws IOException {
+        final File dir = tmp.newFolder();
+        try (IndexHtmlBuilder index = new IndexHtmlBuilder(dir, "Foo", IndexTemplate.compile(template), false).withSubtitle("foo")) {
+            index.add("/latest/foo.hpi", "permalink to the latest");
+            index.add("https://example.org/foo.hpi", "1.0");
+        }
+        OutputFiles.getInstance().finish();
+        return new String(Files.readAllBytes(new File(dir, "index.html").toPath()), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void streamsContent() throws IOException {
+        assertThat(render("<title>{{ title }}</title><h2>{{ subtitle }}</h2><meta content=\"{{ description }}\">"
+                        + "<meta content=\"{{ opengraphImage }}\"><ul>{{ content }}</ul><p>{{ unknown }} {{ title }}</p>"),
+                is("<title>Foo</title><h2>foo</h2><meta content=\"Download previous versions of Foo\">"
+                        + "<meta content=\"https://www.jenkins.io/images/logo-title-opengraph.png\"><ul>" + ENTRIES
+                        + "</ul><p>{{ unknown }} Foo</p>" + System.lineSeparator()));
+    }
+
+    @Test
+    public void repeatedContent() throws IOException {
+        assertThat(render("<ul>{{ content }}</ul><ol>{{ content }}</ol>{{ title }}"),
+                is("<ul>" + ENTRIES + "</ul><ol>" + ENTRIES + "</ol>Foo" + System.lineSeparator()));
+    }
+
+    @Test
+    public void noContent() throws IOException {
+        assertThat(render("<h1>{{ title }}</h1>"), is("<h1>Foo</h1>" + System.lineSeparator()));
+    }
+
+    @Test
+    public void indexJson() throws IOException {
+        final File dir = tmp.newFolder();
+        final MavenRepository.ArtifactMetadata metadata = new MavenRepository.ArtifactMetadata();
+        metadata.sha1 = "AAEC";
+        metadata.sha256 = "/w==";
+        try (IndexHtmlBuilder index = new IndexHtmlBuilder(dir, "Foo", IndexTemplate.compile("{{ content }}"), true)) {
+            index.add("/latest/foo.hpi", "permalink to the latest");
+            index.add("https://example.org/foo.hpi", new Date(0), "1.0", metadata, "2.400");
+        }
+        OutputFiles.getInstance().finish();
+
+        final JSONObject json = JSON.parseObject(new String(Files.readAllBytes(new File(dir, "index.json").toPath()), StandardCharsets.UTF_8));
+        assertThat(json.getString("title"), is("Foo"));
+        final JSONArray releases = json.getJSONArray("releases");
+        assertThat(releases.size(), is(1));
+        final JSONObject release = releases.getJSONObject(0);
+        assertThat(release.getString("version"), is("1.0"));
+        assertThat(release.getString("url"), is("https://example.org/foo.hpi"));
+        assertThat(release.getString("releaseTimestamp"), is("1970-01-01T00:00:00Z"));
+        assertThat(release.getString("sha1"), is("000102"));
+        assertThat(release.getString("sha256"), is("ff"));
+        assertThat(release.getString("requiredCore"), is("2.400"));
+    }
+
+    /**
+     * Writes index.json to a stream that fails, like {@link OutputFiles} failing to open it or serialization failing.
+     */
+    private static class FailingIndexJson extends OutputFiles {
+        private final boolean open;
+
+        FailingIndexJson(boolean open) {
+            this.open = open;
+        }
+
+        @Override
+        public OutputStream newOutputStream(@Nonnull File file) throws IOException {
+            if (!file.getName().equals("index.json")) {
+                return super.newOutputStream(file);
+            }
+            if (!open) {
+                throw new IOException("Failed to open " + file);
+            }
+            return new OutputStream() {
+                @Override
+                public void write(int b) {
+                    throw new IllegalStateException("Failed to write " + file);
+                }
+            };
+        }
+    }
+
+    private void assertNoOutput(OutputFiles outputFiles, ThrowingRunnable generate) throws IOException {
+        final OutputFiles previous = OutputFiles.getInstance();
+        OutputFiles.initialize(outputFiles);
+        try {
+            assertThrows(Exception.class, generate);
+            outputFiles.finish();
+        } finally {
+            OutputFiles.initialize(previous);
+        }
+    }
+
+    @Test
+    public void failureToOpenIndexJson() throws IOException {
+        final File dir = tmp.newFolder();
+        assertNoOutput(new FailingIndexJson(false), () -> new IndexHtmlBuilder(dir, "Foo", IndexTemplate.compile("{{ content }}"), true));
+        assertThat(dir.list(), emptyArray());
+    }
+
+    @Test
+    public void failureToWriteIndexJson() throws IOException {
+        final File dir = tmp.newFolder();
+        final MavenRepository.ArtifactMetadata metadata = new MavenRepository.ArtifactMetadata();
+        metadata.sha1 = "AAEC";
+        assertNoOutput(new FailingIndexJson(true), () -> {
+            try (IndexHtmlBuilder index = new IndexHtmlBuilder(dir, "Foo", IndexTemplate.compile("{{ content }}"), true)) {
+                // More than the writer buffers
+                for (int i = 0; i < 1000; i++) {
+                    index.add("https://example.org/foo.hpi", new Date(0), "1." + i, metadata, "2.400");
+                }
+            }
+        });
+        // Neither index.html nor temporary files are left behind
+        assertThat(dir.list(), emptyArray());
+    }
+}
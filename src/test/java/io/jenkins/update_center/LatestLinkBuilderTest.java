@@ -0,0 +1,61 @@
+package io.jenkins.update_center;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class LatestLinkBuilderTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static final IndexTemplateProvider PROVIDER = new IndexTemplateProvider() {
+        @Override
+        protected String initTemplate() {
+            return "{{ content }}";
+        }
+    };
+
+    private static List<String> read(File file) throws IOException {
+        return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void rules() throws IOException {
+        final File dir = tmp.newFolder();
+        try (LatestLinkBuilder builder = new LatestLinkBuilder(dir, PROVIDER)) {
+            builder.add("foo.hpi", "https://example.org/foo.hpi");
+        }
+        OutputFiles.getInstance().finish();
+
+        assertThat(read(new File(dir, ".htaccess")), contains("# GENERATED. DO NOT MODIFY.", "RewriteEngine on",
+                "RewriteRule ^foo\\.hpi$ https://example.org/foo.hpi [R=302,L]"));
+        assertThat(new File(dir, LatestLinkBuilder.REWRITE_MAP_FILE).exists(), is(false));
+    }
+
+    @Test
+    public void maps() throws IOException {
+        final File dir = tmp.newFolder();
+        try (LatestLinkBuilder builder = new LatestLinkBuilder(dir, PROVIDER, "latest", true)) {
+            builder.add("foo.hpi", "https://example.org/foo.hpi");
+            builder.add("jenkins.war", "https://example.org/jenkins.war");
+        }
+        OutputFiles.getInstance().finish();
+
+        assertThat(read(new File(dir, ".htaccess")), contains("# GENERATED. DO NOT MODIFY.", "RewriteEngine on",
+                "RewriteCond ${latest:$1|-} !=-", "RewriteRule ^(.+)$ ${latest:$1} [R=302,L]"));
+        assertThat(read(new File(dir, LatestLinkBuilder.REWRITE_MAP_FILE)), contains("# GENERATED. DO NOT MODIFY.",
+                "foo.hpi https://example.org/foo.hpi", "jenkins.war https://example.org/jenkins.war"));
+        assertThat(read(new File(dir, LatestLinkBuilder.NGINX_MAP_FILE)), contains("# GENERATED. DO NOT MODIFY.",
+                "\"/latest/foo.hpi\" \"https://example.org/foo.hpi\";", "\"/latest/jenkins.war\" \"https://example.org/jenkins.war\";"));
+    }
+}
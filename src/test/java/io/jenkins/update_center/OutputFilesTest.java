@@ -0,0 +1,172 @@
+package io.jenkins.update_center;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.emptyArray;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThrows;
+
+public class OutputFilesTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static void write(OutputFiles outputFiles, File file, String content) throws IOException {
+        try (OutputStream os = outputFiles.newOutputStream(file)) {
+            os.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void writesCompressedSiblings() throws IOException {
+        OutputFiles outputFiles = new OutputFiles();
+        outputFiles.writeCompressed = true;
+
+        File json = new File(tmp.getRoot(), "some/dir/update-center.json");
+        File txt = new File(tmp.getRoot(), "some/dir/latestCore.txt");
+        write(outputFiles, json, "{\"foo\":\"bar\"}");
+        write(outputFiles, txt, "2.500");
+        outputFiles.finish();
+
+        assertThat(new String(Files.readAllBytes(json.toPath()), StandardCharsets.UTF_8), is("{\"foo\":\"bar\"}"));
+        try (InputStream is = new GZIPInputStream(Files.newInputStream(new File(json.getPath() + ".gz").toPath()))) {
+            assertThat(new String(is.readAllBytes(), StandardCharsets.UTF_8), is("{\"foo\":\"bar\"}"));
+        }
+        assertThat(new File(txt.getPath() + ".gz").exists(), is(false));
+    }
+
+    @Test
+    public void noCompressedSiblingsByDefault() throws IOException {
+        OutputFiles outputFiles = new OutputFiles();
+
+        File html = new File(tmp.getRoot(), "index.html");
+        write(outputFiles, html, "<html></html>");
+        outputFiles.finish();
+
+        assertThat(html.exists(), is(true));
+        assertThat(new File(html.getPath() + ".gz").exists(), is(false));
+    }
+
+    @Test
+    public void keepsUnchangedFiles() throws IOException {
+        OutputFiles outputFiles = new OutputFiles();
+        outputFiles.writeCompressed = true;
+        outputFiles.changedFilesList = new File(tmp.getRoot(), "changed.txt");
+
+        File dir = tmp.newFolder("www");
+        File unchanged = new File(dir, "unchanged.json");
+        File changed = new File(dir, "changed.json");
+        write(outputFiles, unchanged, "{\"foo\":\"bar\"}");
+        write(outputFiles, changed, "{\"foo\":\"bar\"}");
+        outputFiles.finish();
+
+        final long past = 1_000_000_000_000L;
+        assertThat(unchanged.setLastModified(past), is(true));
+        assertThat(new File(unchanged.getPath() + ".gz").setLastModified(past), is(true));
+        Files.delete(outputFiles.changedFilesList.toPath());
+
+        write(outputFiles, unchanged, "{\"foo\":\"bar\"}");
+        write(outputFiles, changed, "{\"foo\":\"baz\"}");
+        outputFiles.finish();
+
+        assertThat(unchanged.lastModified(), is(past));
+        assertThat(new File(unchanged.getPath() + ".gz").lastModified(), is(past));
+        assertThat(new String(Files.readAllBytes(changed.toPath()), StandardCharsets.UTF_8), is("{\"foo\":\"baz\"}"));
+        assertThat(Files.readAllLines(outputFiles.changedFilesList.toPath(), StandardCharsets.UTF_8), contains(changed.getPath(), changed.getPath() + ".gz"));
+        assertThat(dir.list((d, name) -> name.endsWith(".tmp")), emptyArray());
+    }
+
+    @Test
+    public void linksUnchangedFilesFromPreviousGeneration() throws IOException {
+        OutputFiles outputFiles = new OutputFiles();
+        outputFiles.writeCompressed = true;
+        File previous = tmp.newFolder("www.1");
+        write(outputFiles, new File(previous, "dir/unchanged.json"), "{\"foo\":\"bar\"}");
+        write(outputFiles, new File(previous, "dir/changed.json"), "{\"foo\":\"bar\"}");
+        write(outputFiles, new File(previous, "removed.json"), "{}");
+        outputFiles.finish();
+
+        outputFiles.outputRoot = new File(tmp.getRoot(), "www.2");
+        outputFiles.previousOutputRoot = previous;
+        File unchanged = new File(outputFiles.outputRoot, "dir/unchanged.json");
+        File changed = new File(outputFiles.outputRoot, "dir/changed.json");
+        write(outputFiles, unchanged, "{\"foo\":\"bar\"}");
+        write(outputFiles, changed, "{\"foo\":\"baz\"}");
+        outputFiles.finish();
+
+        assertThat(Files.isSameFile(unchanged.toPath(), new File(previous, "dir/unchanged.json").toPath()), is(true));
+        assertThat(Files.isSameFile(new File(unchanged.getPath() + ".gz").toPath(), new File(previous, "dir/unchanged.json.gz").toPath()), is(true));
+        assertThat(new String(Files.readAllBytes(changed.toPath()), StandardCharsets.UTF_8), is("{\"foo\":\"baz\"}"));
+        assertThat(new String(Files.readAllBytes(new File(previous, "dir/changed.json").toPath()), StandardCharsets.UTF_8), is("{\"foo\":\"bar\"}"));
+        assertThat(new File(outputFiles.outputRoot, "removed.json").exists(), is(false));
+    }
+
+    @Test
+    public void linksIdenticalFiles() throws IOException {
+        OutputFiles outputFiles = new OutputFiles();
+        outputFiles.linkIdenticalFiles = true;
+        File first = new File(tmp.getRoot(), "dynamic-2.400/latestCore.txt");
+        File second = new File(tmp.getRoot(), "dynamic-stable-2.401.3/latestCore.txt");
+        File third = new File(tmp.getRoot(), "current/latestCore.txt");
+        write(outputFiles, first, "2.500");
+        outputFiles.finish();
+        write(outputFiles, second, "2.500");
+        write(outputFiles, third, "2.501");
+        outputFiles.finish();
+
+        assertThat(Files.isSameFile(first.toPath(), second.toPath()), is(true));
+        assertThat(Files.isSameFile(first.toPath(), third.toPath()), is(false));
+
+        // Writing different content to a linked file does not affect the others
+        write(outputFiles, first, "2.501");
+        outputFiles.finish();
+        assertThat(new String(Files.readAllBytes(second.toPath()), StandardCharsets.UTF_8), is("2.500"));
+        assertThat(Files.isSameFile(first.toPath(), third.toPath()), is(true));
+    }
+
+    @Test
+    public void reportsFailuresThroughPrintWriter() throws IOException {
+        OutputFiles outputFiles = new OutputFiles();
+
+        // Cannot be replaced by a file
+        File file = new File(tmp.getRoot(), "index.html");
+        Files.createDirectories(new File(file, "dir").toPath());
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(outputFiles.newOutputStream(file), StandardCharsets.UTF_8));
+        writer.println("<html></html>");
+        writer.close();
+
+        assertThrows(IOException.class, () -> OutputFiles.checkError(writer, file));
+    }
+
+    @Test
+    public void discardsIncompleteFiles() throws IOException {
+        OutputFiles outputFiles = new OutputFiles();
+
+        File dir = tmp.newFolder("www");
+        File file = new File(dir, "index.html");
+        write(outputFiles, file, "<html></html>");
+        OutputStream os = outputFiles.newOutputStream(file);
+        os.write("<html>".getBytes(StandardCharsets.UTF_8));
+        OutputFiles.discard(os);
+        os.close();
+        outputFiles.finish();
+
+        assertThat(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8), is("<html></html>"));
+        assertThat(dir.list(), arrayContaining("index.html"));
+    }
+}
@@ -0,0 +1,42 @@
+package io.jenkins.update_center;
+
+import io.jenkins.update_center.util.PersistentCache;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class PersistentCacheTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void retainsOnlyUsedEntries() throws IOException {
+        final File file = new File(tmp.getRoot(), "cache.txt");
+
+        final PersistentCache first = new PersistentCache("test");
+        first.put("ignored", "not loaded yet");
+        assertThat(first.load(file), is(true));
+        assertThat(first.load(file), is(false));
+        first.put("a", "<b>A</b>");
+        first.put("b", "");
+        first.save();
+
+        final PersistentCache second = new PersistentCache("test");
+        second.load(file);
+        assertThat(second.get("ignored"), nullValue());
+        assertThat(second.get("a"), is("<b>A</b>"));
+        second.save();
+
+        final PersistentCache third = new PersistentCache("test");
+        third.load(file);
+        assertThat(third.get("a"), is("<b>A</b>"));
+        assertThat(third.get("b"), nullValue());
+    }
+}
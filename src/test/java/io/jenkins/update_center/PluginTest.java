@@ -6,12 +6,17 @@ import org.junit.Test;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.jar.Manifest;
 import java.util.logging.Handler;
 import java.util.logging.LogRecord;
@@ -172,6 +177,55 @@ public class PluginTest extends TestCase {
         assertEquals("One artifact", 1, plugin.getArtifacts().size());
     }
 
+    public void testScmUrlComputedOncePerInputs() {
+        Plugin plugin = new Plugin("foo");
+        final AtomicInteger computations = new AtomicInteger();
+        final String url = "https://github.com/jenkinsci/foo-plugin";
+        assertEquals(url, plugin.getScmUrl(Arrays.asList(url, null, null), () -> compute(computations, url)));
+        assertEquals(url, plugin.getScmUrl(Arrays.asList(url, null, null), () -> compute(computations, "unexpected")));
+        assertEquals("Computed once for the same inputs", 1, computations.get());
+
+        final String otherUrl = "https://github.com/jenkinsci/bar-plugin";
+        assertEquals(otherUrl, plugin.getScmUrl(Arrays.asList(url, "scm:git:https://github.com/jenkinsci/bar-plugin.git", null), () -> compute(computations, otherUrl)));
+        assertEquals("Computed again for different inputs", 2, computations.get());
+
+        final ArtifactCoordinates parent = new ArtifactCoordinates("org.jenkins-ci.plugins", "plugin", "4.0", "pom");
+        assertNull(plugin.getScmUrl(Arrays.asList(null, null, parent), () -> compute(computations, null)));
+        assertNull(plugin.getScmUrl(Arrays.asList(null, null, parent), () -> compute(computations, "unexpected")));
+        assertEquals("No result is retained too", 3, computations.get());
+    }
+
+    private static String compute(AtomicInteger computations, String result) {
+        computations.incrementAndGet();
+        return result;
+    }
+
+    public void testReleasesShareScmUrl() throws Exception {
+        final Path poms = Files.createTempDirectory("update-center2-");
+        TestRepository repository = new TestRepository() {
+            @Override
+            public File resolve(ArtifactCoordinates artifact) {
+                return poms.resolve(artifact.artifactId + "-" + artifact.version + "." + artifact.packaging).toFile();
+            }
+        };
+        final String pom = "<project><scm><url>https://github.com/jenkinsci/foo-plugin</url></scm></project>";
+        Files.write(poms.resolve("foo-1.0.pom"), pom.getBytes(StandardCharsets.UTF_8));
+        Files.write(poms.resolve("foo-1.1.pom"), pom.getBytes(StandardCharsets.UTF_8));
+        Files.write(poms.resolve("foo-1.2.pom"), pom.replace("foo-plugin", "foo-bar-plugin").getBytes(StandardCharsets.UTF_8));
+
+        Plugin plugin = new Plugin("foo");
+        final HPI first = registerAndAdd(repository, new ArtifactCoordinates("the-group", "foo", "1.0", "hpi"), plugin, 1);
+        final HPI second = registerAndAdd(repository, new ArtifactCoordinates("the-group", "foo", "1.1", "hpi"), plugin, 2);
+        final HPI third = registerAndAdd(repository, new ArtifactCoordinates("the-group", "foo", "1.2", "hpi"), plugin, 3);
+        assertEquals("https://github.com/jenkinsci/foo-plugin", first.getScmUrl());
+        assertEquals("https://github.com/jenkinsci/foo-plugin", second.getScmUrl());
+        assertEquals("https://github.com/jenkinsci/foo-bar-plugin", third.getScmUrl());
+        // The result for the shared inputs was retained
+        assertEquals("https://github.com/jenkinsci/foo-plugin", plugin.getScmUrl(Arrays.asList("https://github.com/jenkinsci/foo-plugin", null, null), () -> {
+            throw new AssertionError("Unexpected computation");
+        }));
+    }
+
     private static void assertMessageSubstringLogged(RecordingHandler handler, String message) {
         assertTrue("Message logged: " + message, handler.records.stream().anyMatch(it -> it.getMessage().contains(message)));
     }
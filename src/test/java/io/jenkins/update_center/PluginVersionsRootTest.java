@@ -0,0 +1,228 @@
+package io.jenkins.update_center;
+
+import com.alibaba.fastjson.annotation.JSONField;
+import hudson.util.VersionNumber;
+import io.jenkins.update_center.json.PluginVersionsRoot;
+import io.jenkins.update_center.json.WithSignature;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.text.SimpleDateFormat;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+public class PluginVersionsRootTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static class TestRepository extends BaseMavenRepository {
+        private final Map<String, String> jenkinsVersions = new TreeMap<>();
+
+        @Override
+        protected Set<ArtifactCoordinates> listAllJenkinsWars(String groupId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Collection<ArtifactCoordinates> listAllPlugins() {
+            return jenkinsVersions.keySet().stream().map(key -> key.split(":"))
+                    .map(gav -> new ArtifactCoordinates("org.example", gav[0], gav[1], "hpi"))
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public ArtifactMetadata getMetadata(MavenArtifact artifact) {
+            final String key = artifact.artifact.artifactId + ":" + artifact.version;
+            final ArtifactMetadata metadata = new ArtifactMetadata();
+            metadata.sha1 = "sha1-" + key;
+            metadata.sha256 = "sha256-" + key;
+            metadata.timestamp = 1709640000000L + key.hashCode();
+            return metadata;
+        }
+
+        @Override
+        public Manifest getManifest(MavenArtifact artifact) {
+            final Manifest manifest = new Manifest();
+            manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+            manifest.getMainAttributes().putValue("Jenkins-Version", jenkinsVersions.get(artifact.artifact.artifactId + ":" + artifact.version));
+            if (artifact.artifact.artifactId.equals("foo")) {
+                manifest.getMainAttributes().putValue("Plugin-Dependencies", "bar:1.0;resolution:=optional");
+                manifest.getMainAttributes().putValue("Compatible-Since-Version", "1.0");
+            }
+            return manifest;
+        }
+
+        @Override
+        public InputStream getZipFileEntry(MavenArtifact artifact, String path) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public File resolve(ArtifactCoordinates artifact) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * The previous implementation, serializing the entire object graph using {@link WithSignature}, with the same
+     * structure as {@code PluginVersions} and {@code PluginVersionsEntry}.
+     */
+    private static class ObjectGraphRoot extends WithSignature {
+        @JSONField
+        public final String updateCenterVersion = "1";
+
+        @JSONField
+        public final Map<String, Versions> plugins = new TreeMap<>();
+
+        ObjectGraphRoot(MavenRepository repository) throws IOException {
+            for (Plugin plugin : repository.listJenkinsPlugins()) {
+                final Versions versions = new Versions();
+                for (VersionNumber version : plugin.getArtifacts().keySet().stream().sorted().collect(Collectors.toList())) {
+                    try {
+                        versions.releases.put(version.toString(), new Release(plugin.getArtifacts().get(version)));
+                    } catch (IOException ex) {
+                        // skipped like invalid releases
+                    }
+                }
+                if (!versions.releases.isEmpty()) {
+                    plugins.put(plugin.getArtifactId(), versions);
+                }
+            }
+        }
+    }
+
+    private static class Versions {
+        @JSONField(unwrapped = true)
+        public final Map<String, Release> releases = new LinkedHashMap<>();
+    }
+
+    private static class Release {
+        @JSONField
+        public final String buildDate;
+        @JSONField
+        public final String name;
+        @JSONField
+        public final String requiredCore;
+        @JSONField
+        public final String sha1;
+        @JSONField
+        public final String sha256;
+        @JSONField
+        public final String url;
+        @JSONField
+        public final String version;
+        @JSONField
+        public final String compatibleSinceVersion;
+        @JSONField
+        public final String releaseTimestamp;
+        @JSONField
+        public final List<HPI.Dependency> dependencies;
+
+        Release(HPI hpi) throws IOException {
+            name = hpi.artifact.artifactId;
+            requiredCore = hpi.getRequiredJenkinsVersion();
+            sha1 = hpi.getMetadata().sha1;
+            sha256 = hpi.getMetadata().sha256;
+            url = hpi.getDownloadUrl().toString();
+            version = hpi.version;
+            buildDate = hpi.getTimestampAsString();
+            dependencies = hpi.getDependencies();
+            compatibleSinceVersion = hpi.getCompatibleSinceVersion();
+            releaseTimestamp = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'.00Z'", Locale.US).format(new Date(hpi.getTimestamp()));
+        }
+    }
+
+    private TestRepository repository;
+
+    private Signer signer;
+
+    @Before
+    public void setUp() throws IOException {
+        repository = new TestRepository();
+        repository.jenkinsVersions.put("foo:1.0", "2.400");
+        repository.jenkinsVersions.put("foo:1.10", "2.414.3");
+        repository.jenkinsVersions.put("foo:1.9", "2.414.3");
+        repository.jenkinsVersions.put("bar:1.0", "2.400");
+        repository.jenkinsVersions.put("invalid:1.0", "invalid");
+
+        signer = new Signer();
+        signer.privateKey = copyResource("/modern.key");
+        signer.certificates = Collections.singletonList(copyResource("/modern.cert"));
+    }
+
+    private File copyResource(String name) throws IOException {
+        final Path file = tmp.newFile().toPath();
+        try (InputStream is = PluginVersionsRootTest.class.getResourceAsStream(name)) {
+            Files.copy(is, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return file.toFile();
+    }
+
+    private String write(WithSignature root, boolean pretty) throws IOException, GeneralSecurityException {
+        final File file = tmp.newFile();
+        root.writeWithSignature(file, signer, pretty);
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    private String write(PluginVersionsRoot root, boolean pretty) throws IOException, GeneralSecurityException {
+        final File file = tmp.newFile();
+        root.writeWithSignature(file, signer, pretty);
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void compact() throws IOException, GeneralSecurityException {
+        final String expected = write(new ObjectGraphRoot(repository), false);
+        assertThat(expected, containsString("\"correct_signature512\""));
+        assertThat(expected, not(containsString("\"invalid\"")));
+        assertThat(write(new PluginVersionsRoot("1", repository), false), is(expected));
+    }
+
+    @Test
+    public void pretty() throws IOException, GeneralSecurityException {
+        final String expected = write(new ObjectGraphRoot(repository), true);
+        assertThat(expected, containsString("\"correct_signature512\""));
+        assertThat(write(new PluginVersionsRoot("1", repository), true), is(expected));
+    }
+
+    @Test
+    public void unsigned() throws IOException, GeneralSecurityException {
+        signer = new Signer();
+        for (boolean pretty : new boolean[] { false, true }) {
+            assertThat(write(new PluginVersionsRoot("1", repository), pretty), is(write(new ObjectGraphRoot(repository), pretty)));
+        }
+    }
+
+    @Test
+    public void empty() throws IOException, GeneralSecurityException {
+        repository.jenkinsVersions.clear();
+        for (boolean pretty : new boolean[] { false, true }) {
+            assertThat(write(new PluginVersionsRoot("1", repository), pretty), is(write(new ObjectGraphRoot(repository), pretty)));
+        }
+    }
+}
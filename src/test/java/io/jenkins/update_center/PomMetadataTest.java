@@ -0,0 +1,125 @@
+package io.jenkins.update_center;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.Manifest;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class PomMetadataTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private File write(String content) throws IOException {
+        final File file = tmp.newFile();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    public void namespacedPom() throws IOException {
+        final PomMetadata pom = PomMetadata.of(write("<?xml version=\"1.0\"?>\n" +
+                "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n" +
+                "  <parent><groupId>org.jenkins-ci.plugins</groupId><artifactId>plugin</artifactId><version>4.80</version></parent>\n" +
+                "  <name>Foo\n    Plugin</name>\n" +
+                "  <description><![CDATA[Does <b>foo</b>]]></description>\n" +
+                "  <scm><url>https://github.com/jenkinsci/foo-plugin</url></scm>\n" +
+                "  <dependencies><dependency><url>https://example.org/</url></dependency></dependencies>\n" +
+                "</project>"));
+        assertThat(pom.getName(), is("Foo Plugin"));
+        assertThat(pom.getDescription(), is("Does <b>foo</b>"));
+        assertThat(pom.getUrl(), nullValue());
+        assertThat(pom.getScmUrl(), is("https://github.com/jenkinsci/foo-plugin"));
+        assertThat(pom.getScmDeveloperConnection(), nullValue());
+        assertThat(pom.getParent(), is(new ArtifactCoordinates("org.jenkins-ci.plugins", "plugin", "4.80", "pom")));
+    }
+
+    @Test
+    public void pomWithoutNamespace() throws IOException {
+        final PomMetadata pom = PomMetadata.of(write("<project><url>https://example.org/</url>" +
+                "<scm><developerConnection>scm:git:git@github.com:jenkinsci/foo-plugin.git</developerConnection></scm></project>"));
+        assertThat(pom.getName(), nullValue());
+        assertThat(pom.getUrl(), is("https://example.org/"));
+        assertThat(pom.getScmDeveloperConnection(), is("scm:git:git@github.com:jenkinsci/foo-plugin.git"));
+        assertThat(pom.getParent(), nullValue());
+    }
+
+    @Test
+    public void invalidPom() throws IOException {
+        final PomMetadata pom = PomMetadata.of(write("<project><name>Foo</project>"));
+        assertThat(pom.getName(), nullValue());
+        assertThat(PomMetadata.of(new File(tmp.getRoot(), "missing.pom")).getName(), nullValue());
+    }
+
+    @Test
+    public void parentResolvedOnce() throws IOException {
+        final File parentPom = write("<project><scm><url>https://github.com/jenkinsci/plugin-pom</url></scm></project>");
+        final AtomicInteger resolved = new AtomicInteger();
+        final MavenRepository repository = new BaseMavenRepository() {
+            @Override
+            protected Set<ArtifactCoordinates> listAllJenkinsWars(String groupId) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Collection<ArtifactCoordinates> listAllPlugins() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public ArtifactMetadata getMetadata(MavenArtifact artifact) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Manifest getManifest(MavenArtifact artifact) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public InputStream getZipFileEntry(MavenArtifact artifact, String path) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public File resolve(ArtifactCoordinates artifact) {
+                resolved.incrementAndGet();
+                return parentPom;
+            }
+        };
+        final ArtifactCoordinates parent = new ArtifactCoordinates("org.jenkins-ci.plugins", "plugin", "0.0-parentResolvedOnce", "pom");
+        for (int i = 0; i < 10; i++) {
+            assertThat(PomMetadata.ofParent(repository, parent).getScmUrl(), is("https://github.com/jenkinsci/plugin-pom"));
+        }
+        assertThat(resolved.get(), is(1));
+    }
+
+    @Test
+    public void persistentCache() throws IOException {
+        final File pom = write("<project><name>Foo</name><parent><groupId>g</groupId><artifactId>a</artifactId><version>1</version></parent></project>");
+        final File cache = new File(tmp.getRoot(), "pom-metadata.txt");
+        PomMetadata.loadPersistentCache(cache);
+        assertThat(PomMetadata.of(pom).getName(), is("Foo"));
+        PomMetadata.savePersistentCache();
+
+        // Entries are looked up by content hash, so this is only visible if the POM is not parsed again
+        final File modified = new File(tmp.getRoot(), "modified-pom-metadata.txt");
+        Files.write(modified.toPath(), new String(Files.readAllBytes(cache.toPath()), StandardCharsets.UTF_8).replace("\"Foo\"", "\"Cached\"").getBytes(StandardCharsets.UTF_8));
+        PomMetadata.loadPersistentCache(modified);
+        final PomMetadata cached = PomMetadata.of(pom);
+        assertThat(cached.getName(), is("Cached"));
+        assertThat(cached.getParent(), is(new ArtifactCoordinates("g", "a", "1", "pom")));
+    }
+}
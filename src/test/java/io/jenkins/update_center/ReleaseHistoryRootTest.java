@@ -0,0 +1,141 @@
+package io.jenkins.update_center;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.parser.Feature;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import io.jenkins.update_center.json.ReleaseHistoryRoot;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+public class ReleaseHistoryRootTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static final long RECENT = Instant.now().minus(2, ChronoUnit.DAYS).toEpochMilli();
+
+    private class TestRepository extends BaseMavenRepository {
+        private final Map<String, Long> timestamps = new TreeMap<>();
+
+        private void release(String artifactId, String version, String timestamp) {
+            release(artifactId, version, Instant.parse(timestamp).toEpochMilli());
+        }
+
+        private void release(String artifactId, String version, long timestamp) {
+            timestamps.put(artifactId + ":" + version, timestamp);
+        }
+
+        @Override
+        protected Set<ArtifactCoordinates> listAllJenkinsWars(String groupId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Collection<ArtifactCoordinates> listAllPlugins() {
+            return timestamps.keySet().stream().map(key -> key.split(":"))
+                    .map(gav -> new ArtifactCoordinates("org.example", gav[0], gav[1], "hpi"))
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public ArtifactMetadata getMetadata(MavenArtifact artifact) {
+            final ArtifactMetadata metadata = new ArtifactMetadata();
+            metadata.timestamp = timestamps.get(artifact.artifact.artifactId + ":" + artifact.version);
+            return metadata;
+        }
+
+        @Override
+        public Manifest getManifest(MavenArtifact artifact) {
+            final Manifest manifest = new Manifest();
+            manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+            manifest.getMainAttributes().putValue("Url", "https://example.org/" + artifact.artifact.artifactId);
+            return manifest;
+        }
+
+        @Override
+        public InputStream getZipFileEntry(MavenArtifact artifact, String path) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public File resolve(ArtifactCoordinates artifact) {
+            // No POMs, so plugins are named after their artifact ID
+            return new File(tmp.getRoot(), "repo/" + artifact.artifactId + "-" + artifact.version + "." + artifact.packaging);
+        }
+    }
+
+    private TestRepository repository;
+
+    private File cache;
+
+    @Before
+    public void setUp() {
+        repository = new TestRepository();
+        repository.release("foo", "1.0", "2024-01-10T12:00:00Z");
+        repository.release("foo", "1.1", "2024-02-10T12:00:00Z");
+        repository.release("bar", "2.0", "2024-02-10T13:00:00Z");
+        repository.release("bar", "2.1", RECENT);
+        cache = new File(tmp.getRoot(), "cache/release-history-segments.txt");
+    }
+
+    private String write(File segmentCache, boolean pretty) throws IOException {
+        final File file = new File(tmp.getRoot(), "release-history.json");
+        new ReleaseHistoryRoot(repository, segmentCache).write(file, pretty);
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void cachedOutputIsIdentical() throws IOException {
+        final String uncached = write(null, false);
+        assertThat(write(cache, false), is(uncached));
+        assertThat(cache.isFile(), is(true));
+        // Second execution reuses the cached segments of the settled days
+        assertThat(write(cache, false), is(uncached));
+        assertThat(uncached, containsString("\"title\":\"bar\""));
+
+        // Same as serializing the whole object graph at once
+        final Object parsed = JSON.parseObject(uncached, Feature.OrderedField);
+        assertThat(JSON.toJSONString(parsed, SerializerFeature.DisableCircularReferenceDetect), is(uncached));
+        assertThat(write(cache, true), is(JSON.toJSONString(parsed, SerializerFeature.DisableCircularReferenceDetect, SerializerFeature.PrettyFormat)));
+    }
+
+    @Test
+    public void cachedSegmentsAreInvalidated() throws IOException {
+        final String before = write(cache, false);
+
+        // foo 1.1 is no longer the latest release, and foo 1.0 no longer the first, both on settled days
+        repository.release("foo", "1.2", "2024-03-10T12:00:00Z");
+        repository.release("foo", "0.9", "2023-12-10T12:00:00Z");
+        final String uncached = write(null, false);
+        assertThat(uncached, not(is(before)));
+        assertThat(write(cache, false), is(uncached));
+    }
+
+    @Test
+    public void emptyHistory() throws IOException {
+        repository.timestamps.clear();
+        assertThat(write(cache, false), is("{\"releaseHistory\":[]}"));
+        assertThat(write(cache, true), is(JSON.toJSONString(JSON.parseObject("{\"releaseHistory\":[]}"), SerializerFeature.PrettyFormat)));
+    }
+}
@@ -0,0 +1,89 @@
+package io.jenkins.update_center;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+public class ReleaseIndexTest {
+    private static class TestRepository extends BaseMavenRepository {
+        private final Map<ArtifactCoordinates, Long> timestamps = new HashMap<>();
+
+        @Override
+        protected Set<ArtifactCoordinates> listAllJenkinsWars(String groupId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Collection<ArtifactCoordinates> listAllPlugins() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ArtifactMetadata getMetadata(MavenArtifact artifact) {
+            ArtifactMetadata metadata = new ArtifactMetadata();
+            metadata.timestamp = timestamps.get(artifact.artifact);
+            return metadata;
+        }
+
+        @Override
+        public Manifest getManifest(MavenArtifact artifact) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public InputStream getZipFileEntry(MavenArtifact artifact, String path) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public File resolve(ArtifactCoordinates artifact) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static void addRelease(TestRepository repository, Plugin plugin, String version, long timestamp) throws Exception {
+        final ArtifactCoordinates coordinates = new ArtifactCoordinates("the-group", plugin.getArtifactId(), version, "hpi");
+        repository.timestamps.put(coordinates, timestamp);
+        plugin.addArtifact(new HPI(repository, coordinates, plugin));
+    }
+
+    @Test
+    public void releasesSince() throws Exception {
+        TestRepository repository = new TestRepository();
+        Plugin foo = new Plugin("foo");
+        Plugin bar = new Plugin("bar");
+        addRelease(repository, foo, "1.0", 1000);
+        addRelease(repository, foo, "1.1", 3000);
+        addRelease(repository, bar, "1.0", 2000);
+        addRelease(repository, bar, "1.1", 3000);
+        addRelease(repository, bar, "1.2", 4000);
+        List<Plugin> plugins = new ArrayList<>();
+        plugins.add(foo);
+        plugins.add(bar);
+
+        ReleaseIndex index = ReleaseIndex.of(plugins);
+        assertThat(gavs(index.getReleasesSince(Instant.ofEpochMilli(3000))), contains("the-group:bar:1.1", "the-group:foo:1.1", "the-group:bar:1.2"));
+        assertThat(gavs(index.getReleasesSince(Instant.ofEpochMilli(2500))), contains("the-group:bar:1.1", "the-group:foo:1.1", "the-group:bar:1.2"));
+        assertThat(gavs(index.getReleasesSince(Instant.ofEpochMilli(0))).size(), is(5));
+        assertThat(index.getReleasesSince(Instant.ofEpochMilli(4001)), empty());
+    }
+
+    private static List<String> gavs(List<HPI> releases) {
+        return releases.stream().map(hpi -> hpi.artifact.getGav()).collect(Collectors.toList());
+    }
+}
@@ -62,4 +62,30 @@ public class SignerTest {
         assertThat(signature.getSignature(), notNullValue());
         assertThat(signature.getCertificates().size(), is(1));
     }
+
+    @Test
+    public void streamingSignature() throws IOException, GeneralSecurityException {
+        Signer signer = new Signer();
+        try (InputStream is = SignerTest.class.getResourceAsStream("/modern.key")) {
+            final Path filePath = Files.createTempFile("update-center2-", ".key");
+            Files.copy(is, filePath, StandardCopyOption.REPLACE_EXISTING);
+            signer.privateKey = filePath.toFile();
+        }
+        try (InputStream is = SignerTest.class.getResourceAsStream("/modern.cert")) {
+            final Path filePath = Files.createTempFile("update-center2-", ".cert");
+            Files.copy(is, filePath, StandardCopyOption.REPLACE_EXISTING);
+            signer.certificates = Collections.singletonList(filePath.toFile());
+        }
+
+        final Signer.StreamingSignature streamingSignature = signer.startSigning();
+        streamingSignature.getWriter().write("{\"plugins\":{");
+        streamingSignature.getWriter().write("\"a\":\"\u00e4\"");
+        streamingSignature.getWriter().write("}}");
+        final JsonSignature signature = streamingSignature.finish();
+
+        final JsonSignature expected = signer.sign("{\"plugins\":{\"a\":\"\u00e4\"}}");
+        assertThat(signature.getDigest512(), is(expected.getDigest512()));
+        assertThat(signature.getDigest(), is(expected.getDigest()));
+        assertThat(signature.getSignature512(), is(expected.getSignature512()));
+    }
 }
@@ -0,0 +1,48 @@
+package io.jenkins.update_center;
+
+import io.jenkins.update_center.json.TierRouting;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class TierRoutingTest {
+    private final TierRouting routing = new TierRouting(Arrays.asList("2.400", "2.420", "2.440"),
+            Arrays.asList("2.401.1", "2.401.3", "2.414.1", "2.414.3", "2.426.1"));
+
+    @Test
+    public void weekly() {
+        assertThat(routing.routes.get("2.399"), nullValue());
+        assertThat(routing.routes.get("2.400"), is("dynamic-2.400"));
+        assertThat(routing.routes.get("2.419"), is("dynamic-2.400"));
+        assertThat(routing.routes.get("2.420"), is("dynamic-2.420"));
+        assertThat(routing.routes.get("2.500"), is("dynamic-2.440"));
+        assertThat(routing.routes.get("2.540"), is("dynamic-2.440"));
+        assertThat(routing.routes.get("2.541"), nullValue());
+        assertThat(routing.weekly.oldest, is("dynamic-2.400"));
+        assertThat(routing.weekly.newest, is("dynamic-2.440"));
+        assertThat(routing.weekly.newerThan, is("2.540"));
+    }
+
+    @Test
+    public void stable() {
+        assertThat(routing.routes.get("2.401.0"), is("dynamic-stable-2.401.1"));
+        assertThat(routing.routes.get("2.401.2"), is("dynamic-stable-2.401.1"));
+        assertThat(routing.routes.get("2.401.3"), nullValue());
+        assertThat(routing.routes.get("2.401.x"), is("dynamic-stable-2.401.3"));
+        assertThat(routing.routes.get("2.407.x"), is("dynamic-stable-2.401.3"));
+        assertThat(routing.routes.get("2.414.0"), is("dynamic-stable-2.401.3"));
+        assertThat(routing.routes.get("2.414.1"), is("dynamic-stable-2.414.1"));
+        assertThat(routing.routes.get("2.414.2"), is("dynamic-stable-2.414.1"));
+        assertThat(routing.routes.get("2.414.x"), is("dynamic-stable-2.414.3"));
+        assertThat(routing.routes.get("2.426.0"), is("dynamic-stable-2.414.3"));
+        assertThat(routing.routes.get("2.426.x"), is("dynamic-stable-2.426.1"));
+        assertThat(routing.routes.get("2.526.x"), is("dynamic-stable-2.426.1"));
+        assertThat(routing.routes.get("2.527.x"), nullValue());
+        assertThat(routing.stable.oldest, is("dynamic-stable-2.401.1"));
+        assertThat(routing.stable.newest, is("dynamic-stable-2.426.1"));
+    }
+}
@@ -0,0 +1,87 @@
+package io.jenkins.update_center;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.parser.Feature;
+import io.jenkins.update_center.json.UpdateCenterDelta;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class UpdateCenterDeltaTest {
+    private static final String PREVIOUS = updateCenter("aaa", "2025-01-01T00:00:00Z",
+            "{\"a\":{\"version\":\"1.0\"},\"b\":{\"version\":\"1.0\"},\"c\":{\"version\":\"1.0\"}}",
+            "[{\"id\":\"SECURITY-1\",\"name\":\"a\",\"type\":\"plugin\"},{\"id\":\"SECURITY-2\",\"name\":\"c\",\"type\":\"plugin\"}]");
+
+    private static final String CURRENT = updateCenter("bbb", "2025-01-02T00:00:00Z",
+            "{\"a\":{\"version\":\"1.0\"},\"aa\":{\"version\":\"1.0\"},\"b\":{\"version\":\"1.1\"},\"d\":{\"version\":\"1.0\"}}",
+            "[{\"id\":\"SECURITY-3\",\"name\":\"b\",\"type\":\"plugin\"},{\"id\":\"SECURITY-1\",\"name\":\"a\",\"type\":\"plugin\"}]");
+
+    private static String updateCenter(String digest, String generationTimestamp, String plugins, String warnings) {
+        return "{\"connectionCheckUrl\":\"https://www.google.com/\",\"core\":{\"version\":\"2.500\"}," +
+                "\"deprecations\":{},\"generationTimestamp\":\"" + generationTimestamp + "\",\"id\":\"default\"," +
+                "\"plugins\":" + plugins + ",\"signature\":{\"correct_digest512\":\"" + digest + "\"}," +
+                "\"updateCenterVersion\":\"1\",\"warnings\":" + warnings + "}";
+    }
+
+    private static JSONObject parse(String json) {
+        return JSON.parseObject(json, Feature.OrderedField);
+    }
+
+    /**
+     * Applies a delta like a client would, see {@link UpdateCenterDelta}.
+     */
+    private static String apply(String previousJson, String deltaJson) {
+        final JSONObject delta = parse(deltaJson);
+        final Map<String, Object> result = new TreeMap<>(parse(previousJson));
+        result.put("signature", delta.getJSONObject("targetSignature"));
+        for (String key : new String[] {"generationTimestamp", "connectionCheckUrl", "core", "warnings"}) {
+            if (delta.containsKey(key)) {
+                result.put(key, delta.get(key));
+            }
+        }
+        for (String key : new String[] {"plugins", "deprecations"}) {
+            final Map<String, Object> entries = new TreeMap<>((JSONObject) result.get(key));
+            entries.putAll(delta.getJSONObject(key));
+            delta.getJSONArray("removed" + Character.toUpperCase(key.charAt(0)) + key.substring(1)).forEach(entries::remove);
+            result.put(key, entries);
+        }
+        return JSON.toJSONString(result);
+    }
+
+    @Test
+    public void listsOnlyChanges() {
+        final UpdateCenterDelta delta = new UpdateCenterDelta(parse(PREVIOUS), parse(CURRENT));
+        assertThat(delta.from, is("aaa"));
+        assertThat(delta.to, is("bbb"));
+        assertThat(delta.baseGenerationTimestamp, is("2025-01-01T00:00:00Z"));
+        assertThat(delta.getGenerationTimestamp(), is("2025-01-02T00:00:00Z"));
+        assertThat(delta.core, nullValue());
+        assertThat(delta.connectionCheckUrl, nullValue());
+        assertThat(delta.plugins.keySet(), contains("aa", "b", "d"));
+        assertThat(delta.removedPlugins, contains("c"));
+        assertThat(delta.deprecations.isEmpty(), is(true));
+        assertThat(delta.removedDeprecations, empty());
+        assertThat(delta.warnings.size(), is(2));
+        assertThat(delta.warnings.getJSONObject(0).getString("id"), is("SECURITY-3"));
+    }
+
+    @Test
+    public void omitsUnchangedWarnings() {
+        final String current = CURRENT.replace(CURRENT.substring(CURRENT.indexOf("\"warnings\":")), PREVIOUS.substring(PREVIOUS.indexOf("\"warnings\":")));
+        assertThat(new UpdateCenterDelta(parse(PREVIOUS), parse(current)).warnings, nullValue());
+    }
+
+    @Test
+    public void reconstructsCurrent() {
+        final String delta = JSON.toJSONString(new UpdateCenterDelta(parse(PREVIOUS), parse(CURRENT)));
+        assertThat(apply(PREVIOUS, delta), is(CURRENT));
+    }
+}
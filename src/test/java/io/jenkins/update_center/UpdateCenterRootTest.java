@@ -0,0 +1,179 @@
+package io.jenkins.update_center;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import io.jenkins.update_center.json.UpdateCenterRoot;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThrows;
+
+public class UpdateCenterRootTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static final long FIRST = 1709640000000L; // 2024-03-05T12:00:00Z
+    private static final long SECOND = 1712318400000L; // 2024-04-05T12:00:00Z
+
+    private static class TestRepository extends BaseMavenRepository {
+        private final File poms;
+        private final Map<String, Map<String, String>> manifests = new TreeMap<>();
+        private final Map<String, Long> timestamps = new TreeMap<>();
+
+        private TestRepository(File poms) {
+            this.poms = poms;
+        }
+
+        private void release(String artifactId, String version, long timestamp, String... manifest) {
+            final Map<String, String> attributes = new TreeMap<>();
+            for (int i = 0; i < manifest.length; i += 2) {
+                attributes.put(manifest[i], manifest[i + 1]);
+            }
+            manifests.put(artifactId + ":" + version, attributes);
+            timestamps.put(artifactId + ":" + version, timestamp);
+        }
+
+        @Override
+        protected Set<ArtifactCoordinates> listAllJenkinsWars(String groupId) {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public Collection<ArtifactCoordinates> listAllPlugins() {
+            return manifests.keySet().stream().map(key -> key.split(":"))
+                    .map(gav -> new ArtifactCoordinates("org.example", gav[0], gav[1], "hpi"))
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public ArtifactMetadata getMetadata(MavenArtifact artifact) throws IOException {
+            final String key = artifact.artifact.artifactId + ":" + artifact.version;
+            final ArtifactMetadata metadata = new ArtifactMetadata();
+            metadata.sha1 = "sha1-" + key;
+            metadata.sha256 = "sha256-" + key;
+            metadata.size = key.length();
+            metadata.timestamp = timestamps.get(key);
+            return metadata;
+        }
+
+        @Override
+        public Manifest getManifest(MavenArtifact artifact) {
+            final Manifest manifest = new Manifest();
+            manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+            manifests.get(artifact.artifact.artifactId + ":" + artifact.version).forEach(manifest.getMainAttributes()::putValue);
+            return manifest;
+        }
+
+        @Override
+        public InputStream getZipFileEntry(MavenArtifact artifact, String path) throws IOException {
+            if (path.equals("index.jelly")) {
+                return new ByteArrayInputStream(("<div>Does " + artifact.artifact.artifactId + " things.</div>").getBytes(StandardCharsets.UTF_8));
+            }
+            throw new IOException("Not found: " + path);
+        }
+
+        @Override
+        public File resolve(ArtifactCoordinates artifact) {
+            // No POMs, so plugins are named after their artifact ID and have no SCM URL
+            return new File(poms, artifact.artifactId + "-" + artifact.version + "." + artifact.packaging);
+        }
+    }
+
+    private TestRepository repository;
+
+    @Before
+    public void setUp() throws IOException {
+        repository = new TestRepository(tmp.newFolder("repo"));
+        // Plugin IDs unknown to the maintainers, issue tracker, and health score sources
+        repository.release("uc-test-zeta", "1.0", FIRST, "Jenkins-Version", "2.400");
+        repository.release("uc-test-zeta", "1.1", SECOND, "Jenkins-Version", "2.414.3",
+                "Compatible-Since-Version", "1.1", "Plugin-Dependencies", "uc-test-alpha:2.0;resolution:=optional,credentials:1.0");
+        repository.release("uc-test-alpha", "2.0", FIRST, "Jenkins-Version", "2.400");
+        repository.release("uc-test-invalid", "1.0", FIRST, "Jenkins-Version", "invalid");
+        Popularities.initialize(Collections.singletonMap("uc-test-zeta", 42));
+        LatestPluginVersions.initialize(repository);
+    }
+
+    private static String expectedEntry(String artifactId, String version, long timestamp, String requiredCore,
+                                        String previousVersion, Long previousTimestamp, int popularity, String extra) {
+        // Formatting as done by the previous getters, MavenArtifact#getTimestampAsString and getReleaseTimestamp
+        final SimpleDateFormat releaseTimestampFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'.00Z'", Locale.US);
+        final String key = artifactId + ":" + version;
+        return "{\"buildDate\":\"" + MavenArtifact.getDateFormat().format(new Date(timestamp)) + "\"," +
+                extra +
+                "\"developers\":[],\"excerpt\":\"Does " + artifactId + " things.\"," +
+                "\"gav\":\"org.example:" + key + "\",\"labels\":[\"adopt-this-plugin\"],\"name\":\"" + artifactId + "\"," +
+                "\"popularity\":" + popularity + "," +
+                (previousVersion == null ? "" : "\"previousTimestamp\":\"" + releaseTimestampFormat.format(new Date(previousTimestamp)) + "\",\"previousVersion\":\"" + previousVersion + "\",") +
+                "\"releaseTimestamp\":\"" + releaseTimestampFormat.format(new Date(timestamp)) + "\",\"requiredCore\":\"" + requiredCore + "\"," +
+                "\"sha1\":\"sha1-" + key + "\",\"sha256\":\"sha256-" + key + "\",\"size\":" + key.length() + "," +
+                "\"title\":\"" + artifactId + "\"," +
+                "\"url\":\"https://updates.jenkins.io/download/plugins/" + artifactId + "/" + version + "/" + artifactId + ".hpi\"," +
+                "\"version\":\"" + version + "\",\"wiki\":\"https://plugins.jenkins.io/" + artifactId + "\"}";
+    }
+
+    @Test
+    public void serializesEntries() throws IOException {
+        final UpdateCenterRoot root = new UpdateCenterRoot("default", "https://www.google.com/", repository, new File(Main.resourcesDir, "warnings.json"));
+        assertThat(root.plugins.keySet(), contains("uc-test-alpha", "uc-test-zeta"));
+        assertThat(JSON.toJSONString(root.plugins, SerializerFeature.DisableCircularReferenceDetect), is("{" +
+                "\"uc-test-alpha\":" + expectedEntry("uc-test-alpha", "2.0", FIRST, "2.400", null, null, 0,
+                        "\"dependencies\":[],") + "," +
+                "\"uc-test-zeta\":" + expectedEntry("uc-test-zeta", "1.1", SECOND, "2.414.3", "1.0", FIRST, 42,
+                        "\"compatibleSinceVersion\":\"1.1\",\"dependencies\":[" +
+                                "{\"name\":\"uc-test-alpha\",\"optional\":true,\"version\":\"2.0\"}," +
+                                "{\"name\":\"credentials\",\"optional\":false,\"version\":\"1.0\"}],") +
+                "}"));
+    }
+
+    @Test
+    public void failsOnMetadataErrors() {
+        final AtomicBoolean listed = new AtomicBoolean();
+        final TestRepository failing = new TestRepository(repository.poms) {
+            @Override
+            public Collection<Plugin> listJenkinsPlugins() throws IOException {
+                final Collection<Plugin> plugins = super.listJenkinsPlugins();
+                listed.set(true);
+                return plugins;
+            }
+
+            @Override
+            public ArtifactMetadata getMetadata(MavenArtifact artifact) throws IOException {
+                // Fail while creating the entry rather than while listing releases
+                if (listed.get() && artifact.artifact.artifactId.equals("uc-test-alpha")) {
+                    throw new IOException("Metadata unavailable");
+                }
+                return super.getMetadata(artifact);
+            }
+        };
+        failing.manifests.putAll(repository.manifests);
+        failing.timestamps.putAll(repository.timestamps);
+        final IOException ex = assertThrows(IOException.class, () -> new UpdateCenterRoot("default", "https://www.google.com/", failing, new File(Main.resourcesDir, "warnings.json")));
+        assertThat(ex.getMessage(), containsString("uc-test-alpha"));
+        assertThat(ex.getCause().getMessage(), is("Metadata unavailable"));
+    }
+}